@@ -6,8 +6,12 @@ import java.util.List;
 import net.sf.jclec.problem.classification.classic.ClassicClassificationMetadata;
 import net.sf.jclec.problem.classification.classic.ClassicInstance;
 import net.sf.jclec.problem.classification.classic.IClassicClassifier;
+import net.sf.jclec.problem.classification.coverage.Bitsets;
+import net.sf.jclec.problem.classification.coverage.ColumnEvaluator;
+import net.sf.jclec.problem.classification.coverage.CoverageEngine;
 import net.sf.jclec.problem.classification.rule.Rule;
 import net.sf.jclec.problem.classification.rule.RuleBase;
+import net.sf.jclec.problem.util.dataset.IColumnarDataset;
 import net.sf.jclec.problem.util.dataset.IDataset;
 import net.sf.jclec.problem.util.dataset.IExample;
 import net.sf.jclec.problem.util.dataset.IMetadata;
@@ -78,6 +82,14 @@ public class CrispRuleBase extends RuleBase implements IClassicClassifier
 	
 	public double[] classify(IDataset dataset) 
 	{
+		if(dataset instanceof IColumnarDataset)
+		{
+			// Only the columns of the engine are read, its bitsets are not built
+			CoverageEngine engine = ((IColumnarDataset) dataset).getCoverageEngine();
+			
+			return classify(engine.getColumns(), engine.getRows(), engine.size());
+		}
+		
 		/** Get the dataset instances */
 		ArrayList<IExample> instances = dataset.getExamples();
 		
@@ -111,6 +123,39 @@ public class CrispRuleBase extends RuleBase implements IClassicClassifier
     	return result;
 	}
 
+	/**
+	 * Return the predicted classes of a batch of examples stored by columns
+	 * 
+	 * @param columns the attribute columns, columns[attribute][row]
+	 * @param size the number of examples
+	 * @return array of class predictions
+	 */
+	
+	public double[] classify(double[][] columns, int size)
+	{
+		return classify(columns, null, size);
+	}
+	
+	/**
+	 * Return the predicted class of a row of the columns. The row is
+	 * evaluated as a word with a single row, so single examples follow the
+	 * same path as the batches.
+	 * 
+	 * @param columns the attribute columns, columns[attribute][row]
+	 * @param row the row
+	 * @param buffer the row buffer of the thread, created by ColumnEvaluator.createBuffer()
+	 * @return the predicted class
+	 */
+	
+	public double classify(double[][] columns, int row, ClassicInstance buffer)
+	{
+		for(int j = 0; j < rules.size(); j++)
+			if(ColumnEvaluator.covers(rules.get(j), columns, null, row >> 6, 1L << (row & 63), buffer) != 0)
+				return rules.get(j).getConsequent();
+		
+		return defaultClass;
+	}
+	
 	/**
 	 *  Return the predicted class to the instance
 	 *  
@@ -127,6 +172,58 @@ public class CrispRuleBase extends RuleBase implements IClassicClassifier
 		return defaultClass;
 	}
 	
+	/**
+	 * Return the predicted classes of some rows of the columns. The rows
+	 * are classified by words of 64 rows. Each rule only evaluates the rows
+	 * of the word not covered by the previous rules, and the rules are no
+	 * longer evaluated once all the rows of the word are classified.
+	 * 
+	 * @param columns the attribute columns
+	 * @param rows the rows of the columns, null for all the rows
+	 * @param size the number of rows
+	 * @return array of class predictions
+	 */
+	
+	private double[] classify(double[][] columns, int[] rows, int size)
+	{
+		double[] result = new double[size];
+		int words = Bitsets.words(size);
+		ClassicInstance buffer = ColumnEvaluator.createBuffer(columns);
+		
+		for(int w = 0; w < words; w++)
+		{
+			long remaining = w < words - 1 || (size & 63) == 0 ? -1L : (1L << (size & 63)) - 1;
+			
+			for(int j = 0; j < rules.size() && remaining != 0; j++)
+			{
+				long covered = ColumnEvaluator.covers(rules.get(j), columns, rows, w, remaining, buffer);
+				
+				predict(result, w, covered, rules.get(j).getConsequent());
+				remaining &= ~covered;
+			}
+			
+			// The rows not covered by any rule are predicted as the default class
+			predict(result, w, remaining, defaultClass);
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Sets the prediction of the rows of a word
+	 * 
+	 * @param result array of class predictions
+	 * @param word the index of the word
+	 * @param bits the rows of the word
+	 * @param prediction the predicted class
+	 */
+	
+	private static void predict(double[] result, int word, long bits, double prediction)
+	{
+		for(; bits != 0; bits &= bits - 1)
+			result[(word << 6) + Long.numberOfTrailingZeros(bits)] = prediction;
+	}
+	
 	/**
 	 * Obtains the confusion matrix for a dataset
 	 * 
@@ -0,0 +1,310 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import java.util.Arrays;
+
+import net.sf.jclec.problem.classification.rule.compiler.Operator;
+
+/**
+ * Histogram of the values of an attribute over a grid of bins.
+ *
+ * The range of the attribute is divided in the ten steps of the grid on
+ * which the initial thresholds of the rules are placed, and each step is
+ * divided in a number of equal bins. Every row is mapped to a byte code:
+ * odd codes are the rows whose value is an edge of the bins, even codes
+ * the rows between two edges, so a threshold on an edge covers a range of
+ * codes. The number of rows of each class is kept for each code, and the
+ * class counts of the thresholds on the edges are obtained from the
+ * histogram without reading the rows. The codes are shared by the subsets
+ * of the rows.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class AttributeBins
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of steps of the grid of the initial thresholds */
+
+	public static final int GRID_STEPS = 10;
+
+	/** Number of bins of each step of the grid */
+
+	public static final int STEP_BINS = 12;
+
+	/** Code of the rows with a missing value */
+
+	private static final int MISSING = 0xFF;
+
+	/** Edges of the bins, in increasing order */
+
+	private final double[] edges;
+
+	/** Code of each row of the whole dataset */
+
+	private final byte[] codes;
+
+	/** Number of rows of each class with a code lower than k, followed by the rows without class */
+
+	private final int[][] classPrefix;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that bins the rows of a column
+	 *
+	 * @param column the attribute column
+	 * @param classColumn the class column
+	 */
+
+	public AttributeBins(double[] column, int[] classColumn)
+	{
+		this.edges = edges(column);
+		this.codes = new byte[column.length];
+
+		for(int i = 0; i < column.length; i++)
+			codes[i] = (byte) code(column[i]);
+
+		this.classPrefix = histogram(null, classColumn);
+	}
+
+	/**
+	 * Constructor for a subset of the rows, which shares the codes
+	 *
+	 * @param bins the bins of the whole dataset
+	 * @param rows the rows of the subset
+	 * @param classColumn the class column of the subset
+	 */
+
+	private AttributeBins(AttributeBins bins, int[] rows, int[] classColumn)
+	{
+		this.edges = bins.edges;
+		this.codes = bins.codes;
+		this.classPrefix = histogram(rows, classColumn);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Builds the bins of a subset of the rows. The histogram of the subset
+	 * is counted again over the codes of the whole dataset.
+	 *
+	 * @param rows the rows of the whole dataset in the subset
+	 * @param classColumn the class column of the subset
+	 * @return the bins of the subset
+	 */
+
+	public AttributeBins subset(int[] rows, int[] classColumn)
+	{
+		return new AttributeBins(this, rows, classColumn);
+	}
+
+	/**
+	 * Checks if a threshold is an edge of the bins
+	 *
+	 * @param value the threshold
+	 * @return true if the threshold is an edge
+	 */
+
+	public boolean isEdge(double value)
+	{
+		int index = lowerEdges(value);
+
+		return index < edges.length && edges[index] == value;
+	}
+
+	/**
+	 * Number of rows of each class covered by the condition attr operator
+	 * value, obtained from the histogram
+	 *
+	 * @param operator a threshold operator
+	 * @param value the threshold
+	 * @return the number of covered rows of each class, followed by the covered rows without class, or null if the threshold is not an edge
+	 */
+
+	public int[] classCounts(Operator operator, double value)
+	{
+		int[] range = codeRange(operator, value);
+
+		if(range == null)
+			return null;
+
+		int[] counts = new int[classPrefix.length];
+
+		for(int c = 0; c < classPrefix.length; c++)
+			counts[c] = classPrefix[c][range[1] + 1] - classPrefix[c][range[0]];
+
+		return counts;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Range of codes covered by the condition attr operator value
+	 *
+	 * @param operator a threshold operator
+	 * @param value the threshold
+	 * @return the lowest and the highest covered codes, or null if the threshold is not an edge
+	 */
+
+	private int[] codeRange(Operator operator, double value)
+	{
+		if(!SortedAttributeIndex.supports(operator))
+			throw new IllegalArgumentException("Operator not supported by the bins: " + operator);
+
+		int maxCode = 2 * edges.length;
+
+		// Thresholds without order cover no row
+		if(Double.isNaN(value))
+			return new int[] {maxCode + 1, maxCode};
+
+		int index = lowerEdges(value);
+
+		if(index < edges.length && edges[index] == value)
+		{
+			switch(operator)
+			{
+				case GREATER_OR_EQUAL:
+					return new int[] {2 * index + 1, maxCode};
+				case GREATER:
+					return new int[] {2 * index + 2, maxCode};
+				case LESS_OR_EQUAL:
+					return new int[] {0, 2 * index + 1};
+				default:
+					return new int[] {0, 2 * index};
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Code of a value
+	 *
+	 * @param value the value
+	 * @return twice the number of edges lower than the value, plus one if the value is an edge
+	 */
+
+	private int code(double value)
+	{
+		if(Double.isNaN(value))
+			return MISSING;
+
+		int index = lowerEdges(value);
+
+		return 2 * index + (index < edges.length && edges[index] == value ? 1 : 0);
+	}
+
+	/**
+	 * Number of edges lower than a value
+	 *
+	 * @param value the value
+	 * @return the number of edges
+	 */
+
+	private int lowerEdges(double value)
+	{
+		int low = 0, high = edges.length;
+
+		while(low < high)
+		{
+			int mid = (low + high) >>> 1;
+
+			if(edges[mid] < value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Counts the rows of each class for each code
+	 *
+	 * @param rows the rows of the whole dataset, null for all the rows
+	 * @param classColumn the class column of the rows
+	 * @return the cumulative counts of each class, followed by the rows without class
+	 */
+
+	private int[][] histogram(int[] rows, int[] classColumn)
+	{
+		int numberClasses = 0;
+
+		for(int i = 0; i < classColumn.length; i++)
+			if(classColumn[i] >= numberClasses)
+				numberClasses = classColumn[i] + 1;
+
+		int numberCodes = 2 * edges.length + 1;
+		int[][] prefix = new int[numberClasses + 1][numberCodes + 1];
+
+		for(int i = 0; i < classColumn.length; i++)
+		{
+			int code = codes[rows == null ? i : rows[i]] & 0xFF;
+
+			if(code != MISSING)
+				prefix[classColumn[i] >= 0 ? classColumn[i] : numberClasses][code + 1]++;
+		}
+
+		for(int c = 0; c <= numberClasses; c++)
+			for(int k = 0; k < numberCodes; k++)
+				prefix[c][k+1] += prefix[c][k];
+
+		return prefix;
+	}
+
+	/**
+	 * Edges of the bins of a column. The edges of the steps of the grid
+	 * are computed as the thresholds of the initial rules, so those
+	 * thresholds are edges of the bins.
+	 *
+	 * @param column the column
+	 * @return the distinct edges in increasing order, empty if the column has no finite range
+	 */
+
+	private static double[] edges(double[] column)
+	{
+		double min = Double.MAX_VALUE, max = -Double.MAX_VALUE;
+
+		for(double value : column)
+		{
+			if(value < min)
+				min = value;
+			if(value > max)
+				max = value;
+		}
+
+		double step = (max - min) / GRID_STEPS;
+
+		if(min > max || Double.isInfinite(step) || Double.isNaN(step))
+			return new double[0];
+
+		double[] edges = new double[GRID_STEPS * STEP_BINS + 1];
+		int count = 0;
+
+		for(int k = 0; k <= GRID_STEPS; k++)
+			for(int s = 0; s < (k < GRID_STEPS ? STEP_BINS : 1); s++)
+				edges[count++] = (min + k*step) + s * (step / STEP_BINS);
+
+		Arrays.sort(edges);
+
+		// Equal edges are merged, so each value has a single code
+		count = 0;
+
+		for(int i = 0; i < edges.length; i++)
+			if(count == 0 || edges[i] != edges[count-1])
+				edges[count++] = edges[i];
+
+		return Arrays.copyOf(edges, count);
+	}
+}
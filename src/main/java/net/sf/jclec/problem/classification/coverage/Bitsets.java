@@ -0,0 +1,314 @@
+package net.sf.jclec.problem.classification.coverage;
+
+/**
+ * Operations over bitsets stored as arrays of longs. The bit i of the
+ * bitset represents the row i of a dataset.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public final class Bitsets
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	private Bitsets()
+	{
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Number of words required to store a number of bits
+	 *
+	 * @param size the number of bits
+	 * @return the number of words
+	 */
+
+	public static int words(int size)
+	{
+		return (size + 63) >>> 6;
+	}
+
+	/**
+	 * Creates an empty bitset
+	 *
+	 * @param size the number of bits
+	 * @return the bitset
+	 */
+
+	public static long[] empty(int size)
+	{
+		return new long[words(size)];
+	}
+
+	/**
+	 * Creates a bitset with all the bits set
+	 *
+	 * @param size the number of bits
+	 * @return the bitset
+	 */
+
+	public static long[] all(int size)
+	{
+		long[] bits = new long[words(size)];
+
+		for(int i = 0; i < bits.length; i++)
+			bits[i] = -1L;
+
+		clearTail(bits, size);
+
+		return bits;
+	}
+
+	/**
+	 * Sets a bit
+	 *
+	 * @param bits the bitset
+	 * @param index the bit index
+	 */
+
+	public static void set(long[] bits, int index)
+	{
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	/**
+	 * Gets a bit
+	 *
+	 * @param bits the bitset
+	 * @param index the bit index
+	 * @return the bit value
+	 */
+
+	public static boolean get(long[] bits, int index)
+	{
+		return (bits[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Intersection of two bitsets
+	 *
+	 * @param a first bitset
+	 * @param b second bitset
+	 * @return a new bitset with a & b
+	 */
+
+	public static long[] and(long[] a, long[] b)
+	{
+		long[] bits = new long[a.length];
+
+		for(int i = 0; i < bits.length; i++)
+			bits[i] = a[i] & b[i];
+
+		return bits;
+	}
+
+	/**
+	 * Union of two bitsets
+	 *
+	 * @param a first bitset
+	 * @param b second bitset
+	 * @return a new bitset with a | b
+	 */
+
+	public static long[] or(long[] a, long[] b)
+	{
+		long[] bits = new long[a.length];
+
+		for(int i = 0; i < bits.length; i++)
+			bits[i] = a[i] | b[i];
+
+		return bits;
+	}
+
+	/**
+	 * Difference of two bitsets
+	 *
+	 * @param a first bitset
+	 * @param b second bitset
+	 * @return a new bitset with a & ~b
+	 */
+
+	public static long[] andNot(long[] a, long[] b)
+	{
+		long[] bits = new long[a.length];
+
+		for(int i = 0; i < bits.length; i++)
+			bits[i] = a[i] & ~b[i];
+
+		return bits;
+	}
+
+	/**
+	 * Complement of a bitset
+	 *
+	 * @param a the bitset
+	 * @param size the number of bits
+	 * @return a new bitset with ~a
+	 */
+
+	public static long[] not(long[] a, int size)
+	{
+		long[] bits = new long[a.length];
+
+		for(int i = 0; i < bits.length; i++)
+			bits[i] = ~a[i];
+
+		clearTail(bits, size);
+
+		return bits;
+	}
+
+	/**
+	 * Intersection of two bitsets stored in the first one
+	 *
+	 * @param a first bitset, modified
+	 * @param b second bitset
+	 */
+
+	public static void andInPlace(long[] a, long[] b)
+	{
+		for(int i = 0; i < a.length; i++)
+			a[i] &= b[i];
+	}
+
+	/**
+	 * Union of two bitsets stored in the first one
+	 *
+	 * @param a first bitset, modified
+	 * @param b second bitset
+	 */
+
+	public static void orInPlace(long[] a, long[] b)
+	{
+		for(int i = 0; i < a.length; i++)
+			a[i] |= b[i];
+	}
+
+	/**
+	 * Difference of two bitsets stored in the first one
+	 *
+	 * @param a first bitset, modified
+	 * @param b second bitset
+	 */
+
+	public static void andNotInPlace(long[] a, long[] b)
+	{
+		for(int i = 0; i < a.length; i++)
+			a[i] &= ~b[i];
+	}
+
+	/**
+	 * Number of bits set
+	 *
+	 * @param bits the bitset
+	 * @return the cardinality
+	 */
+
+	public static int cardinality(long[] bits)
+	{
+		int count = 0;
+
+		for(int i = 0; i < bits.length; i++)
+			count += Long.bitCount(bits[i]);
+
+		return count;
+	}
+
+	/**
+	 * Number of bits set in the intersection of two bitsets
+	 *
+	 * @param a first bitset
+	 * @param b second bitset
+	 * @return the cardinality of a & b
+	 */
+
+	public static int andCardinality(long[] a, long[] b)
+	{
+		int count = 0;
+
+		for(int i = 0; i < a.length; i++)
+			count += Long.bitCount(a[i] & b[i]);
+
+		return count;
+	}
+
+	/**
+	 * Index of the next bit set
+	 *
+	 * @param bits the bitset
+	 * @param from the first index to check
+	 * @return the index of the next bit set or -1 if there is none
+	 */
+
+	public static int nextSetBit(long[] bits, int from)
+	{
+		int word = from >>> 6;
+
+		if(word >= bits.length)
+			return -1;
+
+		long current = bits[word] & (-1L << from);
+
+		while(true)
+		{
+			if(current != 0)
+				return (word << 6) + Long.numberOfTrailingZeros(current);
+
+			if(++word == bits.length)
+				return -1;
+
+			current = bits[word];
+		}
+	}
+
+	/**
+	 * Indexes of the bits set
+	 *
+	 * @param bits the bitset
+	 * @return the indexes in increasing order
+	 */
+
+	public static int[] toArray(long[] bits)
+	{
+		int[] indexes = new int[cardinality(bits)];
+
+		int count = 0;
+
+		for(int i = 0; i < bits.length; i++)
+		{
+			long word = bits[i];
+
+			while(word != 0)
+			{
+				indexes[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+
+		return indexes;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Clears the bits beyond the size of the bitset
+	 *
+	 * @param bits the bitset
+	 * @param size the number of bits
+	 */
+
+	private static void clearTail(long[] bits, int size)
+	{
+		if((size & 63) != 0)
+			bits[bits.length-1] &= (1L << size) - 1;
+	}
+}
@@ -0,0 +1,206 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.rule.Rule;
+import net.sf.jclec.problem.classification.rule.compiler.AttributeCondition;
+import net.sf.jclec.problem.classification.rule.compiler.CompiledCondition;
+import net.sf.jclec.problem.classification.rule.compiler.Conjunction;
+import net.sf.jclec.problem.classification.rule.compiler.Disjunction;
+import net.sf.jclec.problem.classification.rule.compiler.IntervalCondition;
+import net.sf.jclec.problem.classification.rule.compiler.Negation;
+
+/**
+ * Evaluator of the rules over the columns of a dataset, restricted to a
+ * mask of rows.
+ *
+ * The rows are evaluated by words of 64 rows, as the coverage bitsets,
+ * but only the rows set in the mask of a word are read. The conditions
+ * of a conjunction only evaluate the rows covered by the previous ones,
+ * and the conditions of a disjunction the rows not covered yet. Nothing
+ * is cached, so the evaluator needs no coverage engine and it can be
+ * used by several threads at the same time. The conditions which can
+ * not be compiled are interpreted on a row buffer, which each thread
+ * creates once and reuses for all the rows it evaluates.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public final class ColumnEvaluator
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	private ColumnEvaluator()
+	{
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates the buffer where the rows of the columns are interpreted
+	 *
+	 * @param columns the attribute columns
+	 * @return the row buffer, without class
+	 */
+
+	public static ClassicInstance createBuffer(double[][] columns)
+	{
+		ClassicInstance buffer = new ClassicInstance(columns.length);
+
+		buffer.setClassValue(Double.NaN);
+
+		return buffer;
+	}
+
+	/**
+	 * Rows of a word covered by a rule. Antecedents which can not be
+	 * compiled are interpreted on each row of the mask.
+	 *
+	 * @param rule the rule
+	 * @param columns the attribute columns
+	 * @param rows the rows of the columns, null for all the rows
+	 * @param word the index of the word
+	 * @param mask the rows of the word to evaluate
+	 * @param buffer the row buffer of the thread
+	 * @return the rows of the mask covered by the rule
+	 */
+
+	public static long covers(Rule rule, double[][] columns, int[] rows, int word, long mask, ClassicInstance buffer)
+	{
+		CompiledCondition antecedent = rule.getCompiledAntecedent();
+
+		if(antecedent != null)
+			return covers(antecedent, columns, rows, word, mask, buffer);
+
+		long bits = 0;
+
+		for(long m = mask; m != 0; m &= m - 1)
+		{
+			int b = Long.numberOfTrailingZeros(m);
+
+			if((Boolean) rule.covers(fill(buffer, columns, row(rows, word, b))))
+				bits |= 1L << b;
+		}
+
+		return bits;
+	}
+
+	/**
+	 * Rows of a word covered by a condition
+	 *
+	 * @param condition the compiled condition
+	 * @param columns the attribute columns
+	 * @param rows the rows of the columns, null for all the rows
+	 * @param word the index of the word
+	 * @param mask the rows of the word to evaluate
+	 * @param buffer the row buffer of the thread
+	 * @return the rows of the mask covered by the condition
+	 */
+
+	public static long covers(CompiledCondition condition, double[][] columns, int[] rows, int word, long mask, ClassicInstance buffer)
+	{
+		if(mask == 0)
+			return 0;
+
+		long bits = 0;
+
+		if(condition instanceof AttributeCondition)
+		{
+			AttributeCondition attributeCondition = (AttributeCondition) condition;
+			double[] column = columns[attributeCondition.getAttributeIndex()];
+
+			for(long m = mask; m != 0; m &= m - 1)
+			{
+				int b = Long.numberOfTrailingZeros(m);
+
+				if(attributeCondition.getOperator().test(column[row(rows, word, b)], attributeCondition.getValue()))
+					bits |= 1L << b;
+			}
+		}
+		else if(condition instanceof IntervalCondition)
+		{
+			IntervalCondition intervalCondition = (IntervalCondition) condition;
+			double[] column = columns[intervalCondition.getAttributeIndex()];
+			double min = intervalCondition.getMin(), max = intervalCondition.getMax();
+
+			for(long m = mask; m != 0; m &= m - 1)
+			{
+				int b = Long.numberOfTrailingZeros(m);
+				double value = column[row(rows, word, b)];
+
+				if(intervalCondition.isInside() ? value > min && value < max : value <= min || value >= max)
+					bits |= 1L << b;
+			}
+		}
+		else if(condition instanceof Conjunction)
+		{
+			bits = mask;
+
+			for(CompiledCondition child : ((Conjunction) condition).getConditions())
+				bits = covers(child, columns, rows, word, bits, buffer);
+		}
+		else if(condition instanceof Disjunction)
+		{
+			for(CompiledCondition child : ((Disjunction) condition).getConditions())
+				bits |= covers(child, columns, rows, word, mask & ~bits, buffer);
+		}
+		else if(condition instanceof Negation)
+		{
+			bits = mask & ~covers(((Negation) condition).getCondition(), columns, rows, word, mask, buffer);
+		}
+		else
+		{
+			for(long m = mask; m != 0; m &= m - 1)
+			{
+				int b = Long.numberOfTrailingZeros(m);
+
+				if(condition.covers(fill(buffer, columns, row(rows, word, b))))
+					bits |= 1L << b;
+			}
+		}
+
+		return bits;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Row of the columns of a bit of a word
+	 *
+	 * @param rows the rows of the columns, null for all the rows
+	 * @param word the index of the word
+	 * @param bit the bit of the word
+	 * @return the row
+	 */
+
+	private static int row(int[] rows, int word, int bit)
+	{
+		int index = (word << 6) + bit;
+
+		return rows == null ? index : rows[index];
+	}
+
+	/**
+	 * Copies a row to the buffer, for the conditions which are interpreted
+	 *
+	 * @param buffer the row buffer
+	 * @param columns the attribute columns
+	 * @param row the row
+	 * @return the buffer
+	 */
+
+	private static ClassicInstance fill(ClassicInstance buffer, double[][] columns, int row)
+	{
+		for(int j = 0; j < columns.length; j++)
+			buffer.setValue(j, columns[j][row]);
+
+		return buffer;
+	}
+}
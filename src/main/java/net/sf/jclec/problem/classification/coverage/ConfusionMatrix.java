@@ -0,0 +1,131 @@
+package net.sf.jclec.problem.classification.coverage;
+
+/**
+ * Confusion matrix of a rule over a dataset
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class ConfusionMatrix
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** True positives */
+
+	private final int tp;
+
+	/** False positives */
+
+	private final int fp;
+
+	/** True negatives */
+
+	private final int tn;
+
+	/** False negatives */
+
+	private final int fn;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param tp true positives
+	 * @param fp false positives
+	 * @param tn true negatives
+	 * @param fn false negatives
+	 */
+
+	public ConfusionMatrix(int tp, int fp, int tn, int fn)
+	{
+		this.tp = tp;
+		this.fp = fp;
+		this.tn = tn;
+		this.fn = fn;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the true positives
+	 */
+
+	public int getTruePositives()
+	{
+		return tp;
+	}
+
+	/**
+	 * @return the false positives
+	 */
+
+	public int getFalsePositives()
+	{
+		return fp;
+	}
+
+	/**
+	 * @return the true negatives
+	 */
+
+	public int getTrueNegatives()
+	{
+		return tn;
+	}
+
+	/**
+	 * @return the false negatives
+	 */
+
+	public int getFalseNegatives()
+	{
+		return fn;
+	}
+
+	/**
+	 * Sensitivity of the rule, 0 if there are no positive examples
+	 *
+	 * @return the sensitivity
+	 */
+
+	public double getSensitivity()
+	{
+		if(tp + fn == 0)
+			return 0;
+		else
+			return tp / (double) (tp + fn);
+	}
+
+	/**
+	 * Specificity of the rule, 1 if there are no negative examples
+	 *
+	 * @return the specificity
+	 */
+
+	public double getSpecificity()
+	{
+		if(tn + fp == 0)
+			return 1;
+		else
+			return tn / (double) (tn + fp);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------- Overwriting java.lang.Object methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	public String toString()
+	{
+		return "tp=" + tp + " fp=" + fp + " tn=" + tn + " fn=" + fn;
+	}
+}
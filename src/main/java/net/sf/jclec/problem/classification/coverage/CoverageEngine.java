@@ -0,0 +1,776 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.rule.Rule;
+import net.sf.jclec.problem.classification.rule.compiler.AttributeCondition;
+import net.sf.jclec.problem.classification.rule.compiler.CompiledCondition;
+import net.sf.jclec.problem.classification.rule.compiler.Conjunction;
+import net.sf.jclec.problem.classification.rule.compiler.Disjunction;
+import net.sf.jclec.problem.classification.rule.compiler.IntervalCondition;
+import net.sf.jclec.problem.classification.rule.compiler.Negation;
+
+/**
+ * Evaluates the coverage of compiled rules over the columns of a dataset
+ * or over a subset of its rows.
+ *
+ * Every condition is turned into a bitset of the covered rows, the
+ * conjunctions and disjunctions are computed by word operations and the
+ * confusion matrix is obtained by counting the bits against the bitset
+ * of each class. The bitsets of the single conditions are kept in a
+ * cache bounded by bytes, since the same conditions appear in many rules.
+ *
+ * The engine works over a snapshot of the columns of the dataset. The
+ * bitsets returned by the engine are shared and must not be modified.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class CoverageEngine
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Maximum bytes of the condition bitsets cached by an engine */
+
+	private static final long CACHE_BYTES = 16L << 20;
+
+	/** Weigher of the cached condition bitsets */
+
+	private static final WeightedCache.Weigher<CompiledCondition, long[]> BITSET_WEIGHER = new WeightedCache.Weigher<CompiledCondition, long[]>()
+	{
+		public long weigh(CompiledCondition condition, long[] bits)
+		{
+			return WeightedCache.ENTRY_BYTES + 16 + 8L * bits.length;
+		}
+	};
+
+	/** Number of engines created, used to identify them */
+
+	private static final AtomicLong counter = new AtomicLong();
+
+	/** Identifier of the engine */
+
+	private final long id = counter.incrementAndGet();
+
+	/** Attribute columns of the whole dataset */
+
+	private final double[][] columns;
+
+	/** Rows of the columns in the engine, null for all the rows */
+
+	private final int[] rows;
+
+	/** Class of each row */
+
+	private final int[] classColumn;
+
+	/** Number of rows */
+
+	private final int size;
+
+	/** Bitset of the rows of each class */
+
+	private final long[][] classMasks;
+
+	/** Number of rows of each class */
+
+	private final int[] classCounts;
+
+	/** Engine of the whole dataset, null if this is the whole dataset */
+
+	private final CoverageEngine source;
+
+	/** Sorted index of each attribute, built on demand */
+
+	private final SortedAttributeIndex[] sortedIndexes;
+
+	/** Bins of each attribute, built on demand */
+
+	private final AttributeBins[] bins;
+
+	/** Cache of condition bitsets */
+
+	private final WeightedCache<CompiledCondition, long[]> cache;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param columns the attribute columns
+	 * @param classColumn the class column
+	 */
+
+	public CoverageEngine(double[][] columns, int[] classColumn)
+	{
+		this(columns, null, classColumn, null);
+	}
+
+	/**
+	 * Constructor for a subset of the rows of another engine. The subset
+	 * shares the columns. The sorted indexes of a small subset are sorted
+	 * again, the rest are filtered from the indexes of the whole dataset.
+	 *
+	 * @param engine the engine of the dataset
+	 * @param rows the rows of the subset, in increasing order
+	 */
+
+	public CoverageEngine(CoverageEngine engine, int[] rows)
+	{
+		this(engine.columns, engine.rootRows(rows), engine.classColumn(rows), engine.source != null ? engine.source : engine);
+	}
+
+	/**
+	 * Internal constructor
+	 *
+	 * @param columns the attribute columns
+	 * @param rows the rows of the engine or null for all the rows
+	 * @param classColumn the class of each row
+	 * @param source the engine of the whole dataset
+	 */
+
+	private CoverageEngine(double[][] columns, int[] rows, int[] classColumn, CoverageEngine source)
+	{
+		this.columns = columns;
+		this.rows = rows;
+		this.classColumn = classColumn;
+		this.size = classColumn.length;
+		this.source = source;
+		this.sortedIndexes = new SortedAttributeIndex[columns.length];
+		this.bins = new AttributeBins[columns.length];
+
+		int numberClasses = 0;
+
+		for(int i = 0; i < size; i++)
+			if(classColumn[i] >= numberClasses)
+				numberClasses = classColumn[i] + 1;
+
+		classMasks = new long[numberClasses][Bitsets.words(size)];
+		classCounts = new int[numberClasses];
+
+		for(int i = 0; i < size; i++)
+			if(classColumn[i] >= 0)
+			{
+				Bitsets.set(classMasks[classColumn[i]], i);
+				classCounts[classColumn[i]]++;
+			}
+
+		cache = new WeightedCache<CompiledCondition, long[]>(CACHE_BYTES, BITSET_WEIGHER);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the number of rows
+	 *
+	 * @return the number of rows
+	 */
+
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Get the identifier of the engine. Each engine has a different
+	 * identifier, so it identifies the rows of a dataset or view.
+	 *
+	 * @return the identifier
+	 */
+
+	public long getId()
+	{
+		return id;
+	}
+
+	/**
+	 * Get the number of attributes
+	 *
+	 * @return the number of attributes
+	 */
+
+	public int numberOfAttributes()
+	{
+		return columns.length;
+	}
+
+	/**
+	 * Get the attribute columns, shared with the dataset. The rows of the
+	 * engine are given by getRows().
+	 *
+	 * @return the columns
+	 */
+
+	public double[][] getColumns()
+	{
+		return columns;
+	}
+
+	/**
+	 * Get the rows of the columns in the engine
+	 *
+	 * @return the rows in increasing order, null for all the rows
+	 */
+
+	public int[] getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Get the value of an attribute for a row
+	 *
+	 * @param row the row
+	 * @param attribute the attribute index
+	 * @return the value
+	 */
+
+	public double getValue(int row, int attribute)
+	{
+		return columns[attribute][rows == null ? row : rows[row]];
+	}
+
+	/**
+	 * Get the class of a row
+	 *
+	 * @param row the row
+	 * @return the class, -1 if it is missing
+	 */
+
+	public int getClassValue(int row)
+	{
+		return classColumn[row];
+	}
+
+	/**
+	 * Bitset of the rows of a class
+	 *
+	 * @param classValue the class value
+	 * @return the bitset, empty if there are no rows of the class
+	 */
+
+	public long[] classMask(double classValue)
+	{
+		int index = (int) classValue;
+
+		if(index != classValue || index < 0 || index >= classMasks.length)
+			return Bitsets.empty(size);
+
+		return classMasks[index];
+	}
+
+	/**
+	 * Number of rows of a class
+	 *
+	 * @param classValue the class value
+	 * @return the number of rows
+	 */
+
+	public int classCount(double classValue)
+	{
+		int index = (int) classValue;
+
+		if(index != classValue || index < 0 || index >= classCounts.length)
+			return 0;
+
+		return classCounts[index];
+	}
+
+	/**
+	 * Bitset of the rows covered by a condition
+	 *
+	 * @param condition the compiled condition
+	 * @return the bitset of the covered rows
+	 */
+
+	public long[] coverage(CompiledCondition condition)
+	{
+		if(condition instanceof AttributeCondition || condition instanceof IntervalCondition)
+		{
+			long[] bits = cache.get(condition);
+
+			if(bits == null)
+			{
+				if(condition instanceof AttributeCondition)
+					bits = attributeCoverage((AttributeCondition) condition);
+				else
+					bits = intervalCoverage((IntervalCondition) condition);
+
+				cache.put(condition, bits);
+			}
+
+			return bits;
+		}
+		else if(condition instanceof Conjunction)
+		{
+			CompiledCondition[] conditions = ((Conjunction) condition).getConditions();
+
+			long[] bits = coverage(conditions[0]).clone();
+
+			for(int i = 1; i < conditions.length; i++)
+				Bitsets.andInPlace(bits, coverage(conditions[i]));
+
+			return bits;
+		}
+		else if(condition instanceof Disjunction)
+		{
+			CompiledCondition[] conditions = ((Disjunction) condition).getConditions();
+
+			long[] bits = coverage(conditions[0]).clone();
+
+			for(int i = 1; i < conditions.length; i++)
+				Bitsets.orInPlace(bits, coverage(conditions[i]));
+
+			return bits;
+		}
+		else if(condition instanceof Negation)
+		{
+			return Bitsets.not(coverage(((Negation) condition).getCondition()), size);
+		}
+		else
+		{
+			long[] bits = Bitsets.empty(size);
+
+			for(int row = 0; row < size; row++)
+				if(condition.covers(instance(row)))
+					Bitsets.set(bits, row);
+
+			return bits;
+		}
+	}
+
+	/**
+	 * Bitset of the rows covered by a rule. Antecedents which can not be
+	 * compiled are interpreted on each row.
+	 *
+	 * @param rule the rule
+	 * @return the bitset of the covered rows
+	 */
+
+	public long[] coverage(Rule rule)
+	{
+		CompiledCondition antecedent = rule.getCompiledAntecedent();
+
+		if(antecedent != null)
+			return coverage(antecedent);
+
+		long[] bits = Bitsets.empty(size);
+
+		for(int row = 0; row < size; row++)
+			if((Boolean) rule.covers(instance(row)))
+				Bitsets.set(bits, row);
+
+		return bits;
+	}
+
+	/**
+	 * Words of the bitset of the rows covered by a condition. The words
+	 * are computed without caching them, so the words of a bitset can be
+	 * built in parallel by different threads.
+	 *
+	 * @param condition the compiled condition
+	 * @param from first word
+	 * @param to last word (exclusive)
+	 * @return the words from to to of the bitset of the covered rows
+	 */
+
+	public long[] coverage(CompiledCondition condition, int from, int to)
+	{
+		if(condition instanceof AttributeCondition || condition instanceof IntervalCondition)
+		{
+			long[] bits = cache.get(condition);
+
+			if(bits != null)
+				return Arrays.copyOfRange(bits, from, to);
+
+			if(condition instanceof AttributeCondition)
+			{
+				AttributeCondition attributeCondition = (AttributeCondition) condition;
+
+				return CoverageKernels.compare(columns[attributeCondition.getAttributeIndex()], rows, size,
+						attributeCondition.getOperator(), attributeCondition.getValue(), from, to);
+			}
+			else
+			{
+				IntervalCondition intervalCondition = (IntervalCondition) condition;
+
+				return CoverageKernels.interval(columns[intervalCondition.getAttributeIndex()], rows, size,
+						intervalCondition.getMin(), intervalCondition.getMax(), intervalCondition.isInside(), from, to);
+			}
+		}
+		else if(condition instanceof Conjunction)
+		{
+			CompiledCondition[] conditions = ((Conjunction) condition).getConditions();
+
+			long[] bits = coverage(conditions[0], from, to);
+
+			for(int i = 1; i < conditions.length; i++)
+				Bitsets.andInPlace(bits, coverage(conditions[i], from, to));
+
+			return bits;
+		}
+		else if(condition instanceof Disjunction)
+		{
+			CompiledCondition[] conditions = ((Disjunction) condition).getConditions();
+
+			long[] bits = coverage(conditions[0], from, to);
+
+			for(int i = 1; i < conditions.length; i++)
+				Bitsets.orInPlace(bits, coverage(conditions[i], from, to));
+
+			return bits;
+		}
+		else if(condition instanceof Negation)
+		{
+			long[] bits = coverage(((Negation) condition).getCondition(), from, to);
+
+			for(int i = 0; i < bits.length; i++)
+				bits[i] = ~bits[i];
+
+			// Clear the bits beyond the last row
+			if(to == Bitsets.words(size) && (size & 63) != 0)
+				bits[bits.length-1] &= (1L << size) - 1;
+
+			return bits;
+		}
+		else
+		{
+			long[] bits = new long[to - from];
+
+			for(int row = from << 6; row < Math.min(size, to << 6); row++)
+				if(condition.covers(instance(row)))
+					bits[(row >>> 6) - from] |= 1L << row;
+
+			return bits;
+		}
+	}
+
+	/**
+	 * Words of the bitset of the rows covered by a rule
+	 *
+	 * @param rule the rule
+	 * @param from first word
+	 * @param to last word (exclusive)
+	 * @return the words from to to of the bitset of the covered rows
+	 */
+
+	public long[] coverage(Rule rule, int from, int to)
+	{
+		CompiledCondition antecedent = rule.getCompiledAntecedent();
+
+		if(antecedent != null)
+			return coverage(antecedent, from, to);
+
+		long[] bits = new long[to - from];
+
+		for(int row = from << 6; row < Math.min(size, to << 6); row++)
+			if((Boolean) rule.covers(instance(row)))
+				bits[(row >>> 6) - from] |= 1L << row;
+
+		return bits;
+	}
+
+	/**
+	 * Sorted index of an attribute
+	 *
+	 * @param attribute the attribute index
+	 * @return the sorted index
+	 */
+
+	public SortedAttributeIndex getSortedIndex(int attribute)
+	{
+		synchronized(sortedIndexes)
+		{
+			if(sortedIndexes[attribute] == null)
+			{
+				// Small subsets are sorted, the rest are filtered from the index of the whole dataset
+				if(source == null)
+					sortedIndexes[attribute] = new SortedAttributeIndex(columns[attribute], classColumn);
+				else if(SortedAttributeIndex.isSortCheaper(size, source.size))
+					sortedIndexes[attribute] = new SortedAttributeIndex(columns[attribute], rows, classColumn);
+				else
+					sortedIndexes[attribute] = source.getSortedIndex(attribute).subset(rows, classColumn);
+			}
+
+			return sortedIndexes[attribute];
+		}
+	}
+
+	/**
+	 * Bins of an attribute
+	 *
+	 * @param attribute the attribute index
+	 * @return the bins
+	 */
+
+	public AttributeBins getBins(int attribute)
+	{
+		synchronized(bins)
+		{
+			if(bins[attribute] == null)
+			{
+				if(source != null)
+					bins[attribute] = source.getBins(attribute).subset(rows, classColumn);
+				else
+					bins[attribute] = new AttributeBins(columns[attribute], classColumn);
+			}
+
+			return bins[attribute];
+		}
+	}
+
+	/**
+	 * Confusion matrix of a rule
+	 *
+	 * @param rule the rule
+	 * @return the confusion matrix
+	 */
+
+	public ConfusionMatrix confusion(Rule rule)
+	{
+		CompiledCondition antecedent = rule.getCompiledAntecedent();
+
+		if(antecedent != null)
+			return confusion(antecedent, rule.getConsequent());
+
+		return confusion(coverage(rule), rule.getConsequent());
+	}
+
+	/**
+	 * Confusion matrix of a rule. The threshold conditions are solved by
+	 * the histograms of the bins when the threshold is an edge, by the
+	 * sorted indexes otherwise, and the rest by the coverage bitsets.
+	 *
+	 * @param antecedent the compiled rule antecedent
+	 * @param consequent the rule consequent
+	 * @return the confusion matrix
+	 */
+
+	public ConfusionMatrix confusion(CompiledCondition antecedent, double consequent)
+	{
+		if(antecedent instanceof AttributeCondition && SortedAttributeIndex.supports(((AttributeCondition) antecedent).getOperator()))
+		{
+			AttributeCondition condition = (AttributeCondition) antecedent;
+
+			int[] counts = getBins(condition.getAttributeIndex()).classCounts(condition.getOperator(), condition.getValue());
+
+			if(counts != null)
+				return confusion(counts, consequent);
+
+			return getSortedIndex(condition.getAttributeIndex()).confusion(condition.getOperator(), condition.getValue(), consequent);
+		}
+
+		return confusion(coverage(antecedent), consequent);
+	}
+
+	/**
+	 * Confusion matrix of a rule
+	 *
+	 * @param covered the bitset of the rows covered by the rule
+	 * @param consequent the rule consequent
+	 * @return the confusion matrix
+	 */
+
+	public ConfusionMatrix confusion(long[] covered, double consequent)
+	{
+		long[] positives = classMask(consequent);
+
+		// Covered rows and true positives are counted in a single pass
+		int coveredCount = 0, tp = 0;
+
+		for(int i = 0; i < covered.length; i++)
+		{
+			coveredCount += Long.bitCount(covered[i]);
+			tp += Long.bitCount(covered[i] & positives[i]);
+		}
+
+		int fp = coveredCount - tp;
+		int fn = classCount(consequent) - tp;
+		int tn = size - tp - fp - fn;
+
+		return new ConfusionMatrix(tp, fp, tn, fn);
+	}
+
+	/**
+	 * Number of rows of each class covered by a rule, whatever its
+	 * consequent. The confusion matrices of the rule for every consequent
+	 * are derived from these counts.
+	 *
+	 * @param rule the rule
+	 * @return the number of covered rows of each class, followed by the covered rows without class
+	 */
+
+	public int[] classCounts(Rule rule)
+	{
+		CompiledCondition antecedent = rule.getCompiledAntecedent();
+
+		if(antecedent instanceof AttributeCondition && SortedAttributeIndex.supports(((AttributeCondition) antecedent).getOperator()))
+		{
+			AttributeCondition condition = (AttributeCondition) antecedent;
+
+			// Thresholds on the edges of the bins are counted from the histogram
+			int[] counts = getBins(condition.getAttributeIndex()).classCounts(condition.getOperator(), condition.getValue());
+
+			if(counts != null)
+				return counts;
+
+			return getSortedIndex(condition.getAttributeIndex()).classCounts(condition.getOperator(), condition.getValue());
+		}
+
+		return classCounts(coverage(rule));
+	}
+
+	/**
+	 * Number of rows of each class in a bitset, counted in a single pass
+	 *
+	 * @param covered the bitset of the covered rows
+	 * @return the number of covered rows of each class, followed by the covered rows without class
+	 */
+
+	public int[] classCounts(long[] covered)
+	{
+		int[] counts = new int[classMasks.length + 1];
+
+		for(int i = 0; i < covered.length; i++)
+		{
+			long word = covered[i];
+
+			if(word != 0)
+			{
+				int coveredCount = Long.bitCount(word);
+
+				for(int c = 0; c < classMasks.length; c++)
+				{
+					int count = Long.bitCount(word & classMasks[c][i]);
+
+					counts[c] += count;
+					coveredCount -= count;
+				}
+
+				counts[classMasks.length] += coveredCount;
+			}
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Confusion matrix of a rule from the covered rows of each class
+	 *
+	 * @param classCounts the number of covered rows of each class, followed by the covered rows without class
+	 * @param consequent the rule consequent
+	 * @return the confusion matrix
+	 */
+
+	public ConfusionMatrix confusion(int[] classCounts, double consequent)
+	{
+		int index = (int) consequent;
+		int coveredCount = 0, tp = 0;
+
+		for(int c = 0; c < classCounts.length; c++)
+			coveredCount += classCounts[c];
+
+		if(index == consequent && index >= 0 && index < classCounts.length - 1)
+			tp = classCounts[index];
+
+		int fp = coveredCount - tp;
+		int fn = classCount(consequent) - tp;
+		int tn = size - tp - fp - fn;
+
+		return new ConfusionMatrix(tp, fp, tn, fn);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Bitset of the rows covered by an attribute condition
+	 *
+	 * @param condition the condition
+	 * @return the bitset
+	 */
+
+	private long[] attributeCoverage(AttributeCondition condition)
+	{
+		return CoverageKernels.compare(columns[condition.getAttributeIndex()], rows, size, condition.getOperator(), condition.getValue());
+	}
+
+	/**
+	 * Bitset of the rows covered by an interval condition
+	 *
+	 * @param condition the condition
+	 * @return the bitset
+	 */
+
+	private long[] intervalCoverage(IntervalCondition condition)
+	{
+		return CoverageKernels.interval(columns[condition.getAttributeIndex()], rows, size, condition.getMin(), condition.getMax(), condition.isInside());
+	}
+
+	/**
+	 * Materializes a row as an instance
+	 *
+	 * @param row the row
+	 * @return the instance
+	 */
+
+	private ClassicInstance instance(int row)
+	{
+		ClassicInstance instance = new ClassicInstance(columns.length);
+
+		for(int j = 0; j < columns.length; j++)
+			instance.setValue(j, getValue(row, j));
+
+		instance.setClassValue(classColumn[row] >= 0 ? classColumn[row] : Double.NaN);
+
+		return instance;
+	}
+
+	/**
+	 * Rows of the whole dataset of a subset of the rows of this engine
+	 *
+	 * @param subset the rows of the subset
+	 * @return the rows of the whole dataset
+	 */
+
+	private int[] rootRows(int[] subset)
+	{
+		if(rows == null)
+			return subset;
+
+		int[] result = new int[subset.length];
+
+		for(int i = 0; i < subset.length; i++)
+			result[i] = rows[subset[i]];
+
+		return result;
+	}
+
+	/**
+	 * Classes of a subset of the rows of this engine
+	 *
+	 * @param subset the rows of the subset
+	 * @return the class of each row of the subset
+	 */
+
+	private int[] classColumn(int[] subset)
+	{
+		int[] result = new int[subset.length];
+
+		for(int i = 0; i < subset.length; i++)
+			result[i] = classColumn[subset[i]];
+
+		return result;
+	}
+}
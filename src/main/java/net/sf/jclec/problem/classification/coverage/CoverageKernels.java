@@ -0,0 +1,354 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import net.sf.jclec.problem.classification.rule.compiler.Operator;
+
+/**
+ * Kernels which build the coverage bitsets of the single conditions.
+ *
+ * The rows are processed in blocks of 64, one word of the bitset, and
+ * each block is a compare-and-pack loop over a contiguous range of values
+ * with the operator resolved once per block. The rows of a view are
+ * gathered into a contiguous buffer before they are compared.
+ *
+ * The full blocks of the threshold operators and the intervals are packed
+ * by a SIMD backend when one is available. The backend is built with the
+ * incubating vector API of JDK 16+ and is only in the versioned classes
+ * of the multi-release jar, so it is loaded at runtime and the kernels
+ * fall back to the branch-free scalar loops if the JVM is older, the
+ * jdk.incubator.vector module is not added or the processor has less than
+ * four double lanes. Equality keeps the scalar loop, since it compares
+ * the bit patterns and not the values.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public final class CoverageKernels
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Class of the SIMD backend, in the versioned classes of the jar */
+
+	private static final String BACKEND_CLASS = "net.sf.jclec.problem.classification.coverage.VectorKernels";
+
+	/** SIMD backend, null if it is not available */
+
+	private static final Backend BACKEND = loadBackend();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	private CoverageKernels()
+	{
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Checks if the full blocks are packed by the SIMD backend
+	 *
+	 * @return true if the backend is available
+	 */
+
+	public static boolean isVectorized()
+	{
+		return BACKEND != null;
+	}
+
+	/**
+	 * Bitset of the rows which satisfy column[row] operator value
+	 *
+	 * @param column the attribute column
+	 * @param rows the rows of the column to compare, null for all the rows
+	 * @param size the number of rows
+	 * @param operator the relational operator
+	 * @param value the constant value
+	 * @return the bitset
+	 */
+
+	public static long[] compare(double[] column, int[] rows, int size, Operator operator, double value)
+	{
+		return compare(column, rows, size, operator, value, 0, Bitsets.words(size));
+	}
+
+	/**
+	 * Words of the bitset of the rows which satisfy column[row] operator value
+	 *
+	 * @param column the attribute column
+	 * @param rows the rows of the column to compare, null for all the rows
+	 * @param size the number of rows
+	 * @param operator the relational operator
+	 * @param value the constant value
+	 * @param from first word
+	 * @param to last word (exclusive)
+	 * @return the words from to to of the bitset
+	 */
+
+	public static long[] compare(double[] column, int[] rows, int size, Operator operator, double value, int from, int to)
+	{
+		long[] bits = new long[to - from];
+		double[] buffer = rows == null ? null : new double[64];
+
+		for(int w = from; w < to; w++)
+		{
+			int base = w << 6;
+			int count = Math.min(64, size - base);
+
+			double[] values = column;
+			int offset = base;
+
+			if(rows != null)
+			{
+				for(int b = 0; b < count; b++)
+					buffer[b] = column[rows[base + b]];
+
+				values = buffer;
+				offset = 0;
+			}
+
+			if(count == 64 && BACKEND != null && operator != Operator.EQUAL && operator != Operator.NOT_EQUAL)
+				bits[w - from] = BACKEND.compare(values, offset, operator, value);
+			else
+				bits[w - from] = compare(values, offset, count, operator, value);
+		}
+
+		return bits;
+	}
+
+	/**
+	 * Bitset of the rows inside or outside an interval
+	 *
+	 * @param column the attribute column
+	 * @param rows the rows of the column to compare, null for all the rows
+	 * @param size the number of rows
+	 * @param min the lower bound
+	 * @param max the upper bound
+	 * @param inside min &lt; value &lt; max if true, value &lt;= min or value &gt;= max otherwise
+	 * @return the bitset
+	 */
+
+	public static long[] interval(double[] column, int[] rows, int size, double min, double max, boolean inside)
+	{
+		return interval(column, rows, size, min, max, inside, 0, Bitsets.words(size));
+	}
+
+	/**
+	 * Words of the bitset of the rows inside or outside an interval
+	 *
+	 * @param column the attribute column
+	 * @param rows the rows of the column to compare, null for all the rows
+	 * @param size the number of rows
+	 * @param min the lower bound
+	 * @param max the upper bound
+	 * @param inside min &lt; value &lt; max if true, value &lt;= min or value &gt;= max otherwise
+	 * @param from first word
+	 * @param to last word (exclusive)
+	 * @return the words from to to of the bitset
+	 */
+
+	public static long[] interval(double[] column, int[] rows, int size, double min, double max, boolean inside, int from, int to)
+	{
+		long[] bits = new long[to - from];
+		double[] buffer = rows == null ? null : new double[64];
+
+		for(int w = from; w < to; w++)
+		{
+			int base = w << 6;
+			int count = Math.min(64, size - base);
+
+			double[] values = column;
+			int offset = base;
+
+			if(rows != null)
+			{
+				for(int b = 0; b < count; b++)
+					buffer[b] = column[rows[base + b]];
+
+				values = buffer;
+				offset = 0;
+			}
+
+			if(count == 64 && BACKEND != null)
+			{
+				bits[w - from] = BACKEND.interval(values, offset, min, max, inside);
+				continue;
+			}
+
+			long word = 0;
+
+			if(inside)
+			{
+				for(int b = 0; b < count; b++)
+				{
+					double v = values[offset + b];
+					word |= ((v > min) & (v < max) ? 1L : 0L) << b;
+				}
+			}
+			else
+			{
+				for(int b = 0; b < count; b++)
+				{
+					double v = values[offset + b];
+					word |= ((v <= min) | (v >= max) ? 1L : 0L) << b;
+				}
+			}
+
+			bits[w - from] = word;
+		}
+
+		return bits;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Loads the SIMD backend if the JVM supports it
+	 *
+	 * @return the backend, null if it is not available
+	 */
+
+	private static Backend loadBackend()
+	{
+		try
+		{
+			return (Backend) Class.forName(BACKEND_CLASS).getDeclaredConstructor().newInstance();
+		}
+		catch(Throwable e)
+		{
+			// Older JVM, module not added or not enough lanes
+			return null;
+		}
+	}
+
+	/**
+	 * Scalar word of a block of values
+	 */
+
+	private static long compare(double[] values, int offset, int count, Operator operator, double value)
+	{
+		switch(operator)
+		{
+			case GREATER_OR_EQUAL:
+				return greaterOrEqual(values, offset, count, value);
+			case LESS_OR_EQUAL:
+				return lessOrEqual(values, offset, count, value);
+			case GREATER:
+				return greater(values, offset, count, value);
+			case LESS:
+				return less(values, offset, count, value);
+			case EQUAL:
+				return equal(values, offset, count, value);
+			default:
+				return ~equal(values, offset, count, value) & mask(count);
+		}
+	}
+
+	private static long greaterOrEqual(double[] values, int offset, int count, double value)
+	{
+		long word = 0;
+
+		for(int b = 0; b < count; b++)
+			word |= (values[offset + b] >= value ? 1L : 0L) << b;
+
+		return word;
+	}
+
+	private static long lessOrEqual(double[] values, int offset, int count, double value)
+	{
+		long word = 0;
+
+		for(int b = 0; b < count; b++)
+			word |= (values[offset + b] <= value ? 1L : 0L) << b;
+
+		return word;
+	}
+
+	private static long greater(double[] values, int offset, int count, double value)
+	{
+		long word = 0;
+
+		for(int b = 0; b < count; b++)
+			word |= (values[offset + b] > value ? 1L : 0L) << b;
+
+		return word;
+	}
+
+	private static long less(double[] values, int offset, int count, double value)
+	{
+		long word = 0;
+
+		for(int b = 0; b < count; b++)
+			word |= (values[offset + b] < value ? 1L : 0L) << b;
+
+		return word;
+	}
+
+	/**
+	 * Equality with the Double.compare() semantics, which is the equality
+	 * of the bit patterns once NaN is normalized
+	 */
+
+	private static long equal(double[] values, int offset, int count, double value)
+	{
+		long bits = Double.doubleToLongBits(value);
+		long word = 0;
+
+		for(int b = 0; b < count; b++)
+			word |= (Double.doubleToLongBits(values[offset + b]) == bits ? 1L : 0L) << b;
+
+		return word;
+	}
+
+	/**
+	 * Mask of the first count bits of a word
+	 */
+
+	private static long mask(int count)
+	{
+		return count == 64 ? -1L : (1L << count) - 1;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Inner class
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * SIMD backend which packs full blocks of 64 values
+	 */
+
+	interface Backend
+	{
+		/**
+		 * Word of the values which satisfy value operator constant
+		 *
+		 * @param values the values
+		 * @param offset the first of the 64 values
+		 * @param operator a threshold operator, not an equality
+		 * @param value the constant value
+		 * @return the word
+		 */
+
+		public long compare(double[] values, int offset, Operator operator, double value);
+
+		/**
+		 * Word of the values inside or outside an interval
+		 *
+		 * @param values the values
+		 * @param offset the first of the 64 values
+		 * @param min the lower bound
+		 * @param max the upper bound
+		 * @param inside min &lt; value &lt; max if true, value &lt;= min or value &gt;= max otherwise
+		 * @return the word
+		 */
+
+		public long interval(double[] values, int offset, double min, double max, boolean inside);
+	}
+}
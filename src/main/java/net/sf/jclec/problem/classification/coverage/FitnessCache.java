@@ -0,0 +1,128 @@
+package net.sf.jclec.problem.classification.coverage;
+
+/**
+ * Cache of evaluations bounded by the bytes they retain. The least
+ * recently used entries are evicted when the cache is full.
+ *
+ * The entries are identified by the canonical key of the rule, the
+ * identifier of the coverage engine of the data and the consequent.
+ * Only immutable data (columnar datasets and views) can be cached, since
+ * their coverage engine identifies their rows.
+ *
+ * @param <V> type of the cached evaluations
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class FitnessCache<V> extends WeightedCache<FitnessCache.Key, V>
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Weigher of the cached fitness values */
+
+	public static final Weigher<Key, Double> FITNESS_WEIGHER = new Weigher<Key, Double>()
+	{
+		public long weigh(Key key, Double value)
+		{
+			return key.bytes() + 16;
+		}
+	};
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxBytes maximum bytes retained by the entries
+	 * @param weigher weigher of the entries
+	 */
+
+	public FitnessCache(long maxBytes, Weigher<Key, V> weigher)
+	{
+		super(maxBytes, weigher);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Inner class
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Key of a cached evaluation
+	 */
+
+	public static final class Key
+	{
+		/** Canonical key of the rule */
+
+		private final String rule;
+
+		/** Identifier of the coverage engine of the data */
+
+		private final long data;
+
+		/** Rule consequent */
+
+		private final double consequent;
+
+		/** Hash code */
+
+		private final int hash;
+
+		/**
+		 * Constructor
+		 *
+		 * @param rule the canonical key of the rule
+		 * @param data the identifier of the coverage engine of the data
+		 * @param consequent the rule consequent
+		 */
+
+		public Key(String rule, long data, double consequent)
+		{
+			this.rule = rule;
+			this.data = data;
+			this.consequent = consequent;
+
+			long bits = Double.doubleToLongBits(consequent);
+
+			this.hash = 31 * (31 * rule.hashCode() + (int) (data ^ (data >>> 32))) + (int) (bits ^ (bits >>> 32));
+		}
+
+		/**
+		 * Estimates the bytes retained by the key and its entry in the cache
+		 *
+		 * @return the bytes of the key
+		 */
+
+		public long bytes()
+		{
+			return ENTRY_BYTES + 40 + 2L * rule.length();
+		}
+
+		@Override
+		public boolean equals(Object other)
+		{
+			if(other instanceof Key)
+			{
+				Key key = (Key) other;
+
+				return hash == key.hash && data == key.data
+						&& Double.doubleToLongBits(consequent) == Double.doubleToLongBits(key.consequent)
+						&& rule.equals(key.rule);
+			}
+			else
+				return false;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+import net.sf.jclec.problem.classification.rule.compiler.CompiledCondition;
+import net.sf.jclec.problem.classification.rule.compiler.Conjunction;
+import net.sf.jclec.problem.classification.rule.compiler.Disjunction;
+import net.sf.jclec.problem.classification.rule.compiler.Negation;
+
+/**
+ * Orders the conditions of a compiled antecedent by their selectivity
+ * measured on a dataset.
+ *
+ * Compiled conjunctions and disjunctions stop at the first condition that
+ * decides the result. The conditions of a conjunction are ordered from
+ * the one covering fewer rows to the one covering more rows, and those of
+ * a disjunction the other way round, so the deciding condition is usually
+ * the first one checked. Both blocks are commutative, so the ordered
+ * condition covers the same examples as the original one.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public final class SelectivityOrder
+{
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	private SelectivityOrder()
+	{
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Orders the conditions of a compiled antecedent
+	 *
+	 * @param condition the compiled antecedent
+	 * @param engine the coverage engine of the dataset used to measure the selectivity
+	 * @return the ordered antecedent
+	 */
+
+	public static CompiledCondition order(CompiledCondition condition, CoverageEngine engine)
+	{
+		if(condition instanceof Conjunction)
+			return new Conjunction(order(((Conjunction) condition).getConditions(), engine, true));
+
+		if(condition instanceof Disjunction)
+			return new Disjunction(order(((Disjunction) condition).getConditions(), engine, false));
+
+		if(condition instanceof Negation)
+			return new Negation(order(((Negation) condition).getCondition(), engine));
+
+		return condition;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Orders the conditions of a conjunction or a disjunction. Conditions
+	 * covering the same number of rows keep their original order.
+	 *
+	 * @param conditions the conditions
+	 * @param engine the coverage engine
+	 * @param ascending true to check first the conditions covering fewer rows
+	 * @return the ordered conditions
+	 */
+
+	private static CompiledCondition[] order(CompiledCondition[] conditions, CoverageEngine engine, final boolean ascending)
+	{
+		CompiledCondition[] ordered = new CompiledCondition[conditions.length];
+		final int[] covered = new int[conditions.length];
+		Integer[] positions = new Integer[conditions.length];
+
+		for(int i = 0; i < conditions.length; i++)
+		{
+			ordered[i] = order(conditions[i], engine);
+			covered[i] = Bitsets.cardinality(engine.coverage(ordered[i]));
+			positions[i] = i;
+		}
+
+		Arrays.sort(positions, new Comparator<Integer>()
+		{
+			public int compare(Integer i, Integer j)
+			{
+				return ascending ? Integer.compare(covered[i], covered[j]) : Integer.compare(covered[j], covered[i]);
+			}
+		});
+
+		CompiledCondition[] result = new CompiledCondition[conditions.length];
+
+		for(int i = 0; i < positions.length; i++)
+			result[i] = ordered[positions[i]];
+
+		return result;
+	}
+}
@@ -0,0 +1,568 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import net.sf.jclec.problem.classification.rule.compiler.Operator;
+
+/**
+ * Index of the rows of a dataset sorted by the values of an attribute.
+ *
+ * The index keeps the sorted positions of the rows of each class, so the
+ * confusion matrix of a threshold condition such as attr &gt;= c or
+ * attr &lt;= c is obtained by binary searches, without scanning the rows.
+ * The positions of all the classes together take one int per row. Rows with missing values are never covered by a
+ * threshold, so they are left out of the sorted order.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class SortedAttributeIndex
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of rows of the dataset */
+
+	private final int size;
+
+	/** Rows sorted by the attribute value */
+
+	private final int[] rows;
+
+	/** Sorted attribute values */
+
+	private final double[] values;
+
+	/** Sorted positions of the rows of each class, in increasing order */
+
+	private final int[][] classPositions;
+
+	/** Number of rows of each class in the dataset */
+
+	private final int[] classTotals;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor that sorts the rows of a column
+	 *
+	 * @param column the attribute column
+	 * @param classColumn the class column
+	 */
+
+	public SortedAttributeIndex(double[] column, int[] classColumn)
+	{
+		this(classColumn.length, sort(column), null, column, classColumn);
+	}
+
+	/**
+	 * Constructor that sorts the rows of a subset of a column
+	 *
+	 * @param column the attribute column of the whole dataset
+	 * @param subsetRows the rows of the column in the subset, the row i of the subset is subsetRows[i]
+	 * @param classColumn the class column of the subset
+	 */
+
+	public SortedAttributeIndex(double[] column, int[] subsetRows, int[] classColumn)
+	{
+		this(project(column, subsetRows), classColumn);
+	}
+
+	/**
+	 * Constructor from rows already sorted
+	 *
+	 * @param size the number of rows of the dataset
+	 * @param rows the rows with a value, sorted by value
+	 * @param values the sorted values or null to read them from the column
+	 * @param column the attribute column
+	 * @param classColumn the class column
+	 */
+
+	private SortedAttributeIndex(int size, int[] rows, double[] values, double[] column, int[] classColumn)
+	{
+		this.size = size;
+		this.rows = rows;
+
+		if(values == null)
+		{
+			values = new double[rows.length];
+
+			for(int k = 0; k < rows.length; k++)
+				values[k] = column[rows[k]];
+		}
+
+		this.values = values;
+
+		int numberClasses = 0;
+
+		for(int i = 0; i < size; i++)
+			if(classColumn[i] >= numberClasses)
+				numberClasses = classColumn[i] + 1;
+
+		classTotals = new int[numberClasses];
+
+		for(int i = 0; i < size; i++)
+			if(classColumn[i] >= 0)
+				classTotals[classColumn[i]]++;
+
+		int[] counts = new int[numberClasses];
+
+		for(int k = 0; k < rows.length; k++)
+			if(classColumn[rows[k]] >= 0)
+				counts[classColumn[rows[k]]]++;
+
+		classPositions = new int[numberClasses][];
+
+		for(int c = 0; c < numberClasses; c++)
+			classPositions[c] = new int[counts[c]];
+
+		int[] filled = new int[numberClasses];
+
+		for(int k = 0; k < rows.length; k++)
+			if(classColumn[rows[k]] >= 0)
+				classPositions[classColumn[rows[k]]][filled[classColumn[rows[k]]]++] = k;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Checks if the confusion matrix of an operator can be obtained from the index
+	 *
+	 * @param operator the operator
+	 * @return true for the threshold operators
+	 */
+
+	public static boolean supports(Operator operator)
+	{
+		return operator == Operator.GREATER_OR_EQUAL || operator == Operator.LESS_OR_EQUAL
+				|| operator == Operator.GREATER || operator == Operator.LESS;
+	}
+
+	/**
+	 * Rows with a value, sorted by value. The array is shared by the index
+	 * and must not be modified.
+	 *
+	 * @return the sorted rows
+	 */
+
+	public int[] getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Checks if sorting the rows of a subset, m log m, is cheaper than
+	 * filtering them from the index of the whole dataset, which reads the
+	 * N sorted rows of the index. A step of the sort costs about twice a
+	 * step of the filter.
+	 *
+	 * @param subsetSize the number of rows of the subset
+	 * @param size the number of rows of the whole dataset
+	 * @return true if the subset should be sorted
+	 */
+
+	public static boolean isSortCheaper(int subsetSize, int size)
+	{
+		return 2L * subsetSize * (32 - Integer.numberOfLeadingZeros(subsetSize)) < size;
+	}
+
+	/**
+	 * Builds the index of a subset of the rows keeping the sorted order of
+	 * this index, so the subset does not need to be sorted again. The rows
+	 * of the subset are marked in a bitset and their position in the subset
+	 * is the number of marked rows before them, so each sorted row of this
+	 * index is checked in constant time.
+	 *
+	 * @param subsetRows the rows of this index in the subset in increasing order, the row i of the subset is subsetRows[i]
+	 * @param classColumn the class column of the subset
+	 * @return the index of the subset
+	 */
+
+	public SortedAttributeIndex subset(int[] subsetRows, int[] classColumn)
+	{
+		long[] members = new long[Bitsets.words(size)];
+
+		for(int row : subsetRows)
+			members[row >> 6] |= 1L << row;
+
+		// Number of rows of the subset before each word
+		int[] ranks = new int[members.length];
+
+		for(int w = 1; w < members.length; w++)
+			ranks[w] = ranks[w-1] + Long.bitCount(members[w-1]);
+
+		int count = 0;
+
+		for(int k = 0; k < rows.length; k++)
+			if((members[rows[k] >> 6] & 1L << rows[k]) != 0)
+				count++;
+
+		int[] sorted = new int[count];
+		double[] sortedValues = new double[count];
+
+		count = 0;
+
+		for(int k = 0; k < rows.length && count < sorted.length; k++)
+		{
+			int row = rows[k];
+			long word = members[row >> 6];
+
+			if((word & 1L << row) != 0)
+			{
+				sorted[count] = ranks[row >> 6] + Long.bitCount(word & (1L << row) - 1);
+				sortedValues[count++] = values[k];
+			}
+		}
+
+		return new SortedAttributeIndex(subsetRows.length, sorted, sortedValues, null, classColumn);
+	}
+
+	/**
+	 * Confusion matrix of the condition attr operator value
+	 *
+	 * @param operator a threshold operator
+	 * @param value the threshold
+	 * @param consequent the rule consequent
+	 * @return the confusion matrix
+	 */
+
+	public ConfusionMatrix confusion(Operator operator, double value, double consequent)
+	{
+		int[] range = range(operator, value);
+		int from = range[0], to = range[1];
+
+		int classIndex = (int) consequent;
+
+		int tp = 0, positives = 0;
+
+		if(classIndex == consequent && classIndex >= 0 && classIndex < classTotals.length)
+		{
+			tp = count(classPositions[classIndex], from, to);
+			positives = classTotals[classIndex];
+		}
+
+		int fp = (to - from) - tp;
+		int fn = positives - tp;
+		int tn = size - tp - fp - fn;
+
+		return new ConfusionMatrix(tp, fp, tn, fn);
+	}
+
+	/**
+	 * Number of rows of each class covered by the condition attr operator value
+	 *
+	 * @param operator a threshold operator
+	 * @param value the threshold
+	 * @return the number of covered rows of each class, followed by the covered rows without class
+	 */
+
+	public int[] classCounts(Operator operator, double value)
+	{
+		int[] range = range(operator, value);
+		int[] counts = new int[classTotals.length + 1];
+
+		int missing = range[1] - range[0];
+
+		for(int c = 0; c < classTotals.length; c++)
+		{
+			counts[c] = count(classPositions[c], range[0], range[1]);
+			missing -= counts[c];
+		}
+
+		counts[classTotals.length] = missing;
+
+		return counts;
+	}
+
+	/**
+	 * Threshold of the condition attr operator value which maximizes the
+	 * product of the sensitivity and the specificity for a consequent. The
+	 * product only changes at the values of the attribute, so the distinct
+	 * values are swept once in sorted order. Ties are solved by the first
+	 * value of the sweep.
+	 *
+	 * @param operator GREATER_OR_EQUAL or LESS_OR_EQUAL
+	 * @param consequent the rule consequent
+	 * @return the best threshold, NaN if the attribute has no values
+	 */
+
+	public double bestThreshold(Operator operator, double consequent)
+	{
+		if(operator != Operator.GREATER_OR_EQUAL && operator != Operator.LESS_OR_EQUAL)
+			throw new IllegalArgumentException("Operator not supported by the sweep: " + operator);
+
+		int classIndex = (int) consequent;
+
+		int[] positions = new int[0];
+		int positives = 0;
+
+		if(classIndex == consequent && classIndex >= 0 && classIndex < classTotals.length)
+		{
+			positions = classPositions[classIndex];
+			positives = classTotals[classIndex];
+		}
+
+		double best = Double.NaN, bestFitness = -1;
+
+		// Number of positions of the class lower than the current one
+		int lower = 0;
+
+		for(int k = 0; k < values.length; k++)
+		{
+			int from, to;
+
+			if(operator == Operator.GREATER_OR_EQUAL)
+			{
+				// First position of each distinct value
+				if(k > 0 && values[k] == values[k-1])
+					continue;
+
+				from = k; to = values.length;
+			}
+			else
+			{
+				// Last position of each distinct value
+				if(k < values.length - 1 && values[k] == values[k+1])
+					continue;
+
+				from = 0; to = k + 1;
+			}
+
+			int bound = operator == Operator.GREATER_OR_EQUAL ? from : to;
+
+			while(lower < positions.length && positions[lower] < bound)
+				lower++;
+
+			int tp = operator == Operator.GREATER_OR_EQUAL ? positions.length - lower : lower;
+			int fp = (to - from) - tp;
+			int fn = positives - tp;
+			int tn = size - tp - fp - fn;
+
+			double se = tp + fn == 0 ? 0 : tp / (double) (tp + fn);
+			double sp = tn + fp == 0 ? 1 : tn / (double) (tn + fp);
+
+			if(se * sp > bestFitness)
+			{
+				bestFitness = se * sp;
+				best = values[k];
+			}
+		}
+
+		return best;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Range of the sorted rows which satisfy the condition attr operator value
+	 *
+	 * @param operator a threshold operator
+	 * @param value the threshold
+	 * @return the first and the last (exclusive) sorted positions
+	 */
+
+	private int[] range(Operator operator, double value)
+	{
+		int from = 0, to = 0;
+
+		if(!Double.isNaN(value))
+		{
+			switch(operator)
+			{
+				case GREATER_OR_EQUAL:
+					from = lowerBound(value); to = values.length;
+					break;
+				case GREATER:
+					from = upperBound(value); to = values.length;
+					break;
+				case LESS_OR_EQUAL:
+					from = 0; to = upperBound(value);
+					break;
+				case LESS:
+					from = 0; to = lowerBound(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Operator not supported by the index: " + operator);
+			}
+		}
+
+		return new int[] {from, to};
+	}
+
+	/**
+	 * Number of sorted positions of a class in a range
+	 *
+	 * @param positions the sorted positions of the class
+	 * @param from first position
+	 * @param to last position (exclusive)
+	 * @return the number of positions
+	 */
+
+	private static int count(int[] positions, int from, int to)
+	{
+		return lowerBound(positions, to) - lowerBound(positions, from);
+	}
+
+	/**
+	 * Number of elements of a sorted array lower than a value
+	 *
+	 * @param array the sorted array
+	 * @param value the value
+	 * @return the number of elements
+	 */
+
+	private static int lowerBound(int[] array, int value)
+	{
+		int low = 0, high = array.length;
+
+		while(low < high)
+		{
+			int mid = (low + high) >>> 1;
+
+			if(array[mid] < value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Position of the first value greater or equal than a threshold
+	 *
+	 * @param value the threshold
+	 * @return the position
+	 */
+
+	private int lowerBound(double value)
+	{
+		int low = 0, high = values.length;
+
+		while(low < high)
+		{
+			int mid = (low + high) >>> 1;
+
+			if(values[mid] < value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Position of the first value greater than a threshold
+	 *
+	 * @param value the threshold
+	 * @return the position
+	 */
+
+	private int upperBound(double value)
+	{
+		int low = 0, high = values.length;
+
+		while(low < high)
+		{
+			int mid = (low + high) >>> 1;
+
+			if(values[mid] <= value)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+
+		return low;
+	}
+
+	/**
+	 * Values of some rows of a column
+	 *
+	 * @param column the column
+	 * @param rows the rows
+	 * @return the values of the rows
+	 */
+
+	private static double[] project(double[] column, int[] rows)
+	{
+		double[] values = new double[rows.length];
+
+		for(int i = 0; i < rows.length; i++)
+			values[i] = column[rows[i]];
+
+		return values;
+	}
+
+	/**
+	 * Sorts the rows of a column with a value
+	 *
+	 * @param column the column
+	 * @return the rows sorted by value
+	 */
+
+	private static int[] sort(double[] column)
+	{
+		int count = 0;
+
+		for(int i = 0; i < column.length; i++)
+			if(!Double.isNaN(column[i]))
+				count++;
+
+		int[] rows = new int[count];
+
+		count = 0;
+
+		for(int i = 0; i < column.length; i++)
+			if(!Double.isNaN(column[i]))
+				rows[count++] = i;
+
+		mergeSort(rows, new int[rows.length], 0, rows.length, column);
+
+		return rows;
+	}
+
+	/**
+	 * Stable merge sort of the rows by their values
+	 *
+	 * @param rows the rows
+	 * @param buffer auxiliary buffer
+	 * @param from first position
+	 * @param to last position (exclusive)
+	 * @param column the values
+	 */
+
+	private static void mergeSort(int[] rows, int[] buffer, int from, int to, double[] column)
+	{
+		if(to - from < 2)
+			return;
+
+		int mid = (from + to) >>> 1;
+
+		mergeSort(rows, buffer, from, mid, column);
+		mergeSort(rows, buffer, mid, to, column);
+
+		if(column[rows[mid-1]] <= column[rows[mid]])
+			return;
+
+		System.arraycopy(rows, from, buffer, from, to - from);
+
+		int i = from, j = mid, k = from;
+
+		while(i < mid && j < to)
+			rows[k++] = column[buffer[j]] < column[buffer[i]] ? buffer[j++] : buffer[i++];
+
+		while(i < mid)
+			rows[k++] = buffer[i++];
+
+		while(j < to)
+			rows[k++] = buffer[j++];
+	}
+}
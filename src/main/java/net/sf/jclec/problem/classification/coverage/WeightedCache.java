@@ -0,0 +1,222 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache bounded by the weight of its entries. The least recently used
+ * entries are evicted when the weight of the cache exceeds its maximum.
+ *
+ * The weight of an entry is an estimate of the bytes it retains, so the
+ * memory held by the cache does not depend on the size of the dataset
+ * the entries are computed from. Entries heavier than the maximum are
+ * not cached.
+ *
+ * @param <K> type of the keys
+ * @param <V> type of the cached values
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class WeightedCache<K, V>
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Estimated bytes of an entry of the map, besides its key and value */
+
+	public static final long ENTRY_BYTES = 64;
+
+	/** Cached values, in access order */
+
+	private final LinkedHashMap<K, V> entries = new LinkedHashMap<K, V>(16, 0.75f, true);
+
+	/** Weigher of the entries */
+
+	private final Weigher<K, V> weigher;
+
+	/** Maximum weight of the entries */
+
+	private final long maxWeight;
+
+	/** Weight of the entries */
+
+	private long weight;
+
+	/** Number of hits */
+
+	private long hits;
+
+	/** Number of misses */
+
+	private long misses;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param maxWeight maximum weight of the entries, in bytes
+	 * @param weigher weigher of the entries
+	 */
+
+	public WeightedCache(long maxWeight, Weigher<K, V> weigher)
+	{
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get a cached value
+	 *
+	 * @param key the key
+	 * @return the value or null if it is not cached
+	 */
+
+	public synchronized V get(K key)
+	{
+		V value = entries.get(key);
+
+		if(value != null)
+			hits++;
+		else
+			misses++;
+
+		return value;
+	}
+
+	/**
+	 * Cache a value, evicting the least recently used entries if the
+	 * cache is too heavy
+	 *
+	 * @param key the key
+	 * @param value the value
+	 */
+
+	public synchronized void put(K key, V value)
+	{
+		V previous = entries.remove(key);
+
+		if(previous != null)
+			weight -= weigher.weigh(key, previous);
+
+		long entryWeight = weigher.weigh(key, value);
+
+		if(entryWeight > maxWeight)
+			return;
+
+		entries.put(key, value);
+		weight += entryWeight;
+
+		Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+
+		while(weight > maxWeight)
+		{
+			Map.Entry<K, V> entry = eldest.next();
+
+			weight -= weigher.weigh(entry.getKey(), entry.getValue());
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Remove all the entries and the statistics
+	 */
+
+	public synchronized void clear()
+	{
+		entries.clear();
+		weight = 0;
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * @return the number of entries
+	 */
+
+	public synchronized int size()
+	{
+		return entries.size();
+	}
+
+	/**
+	 * @return the weight of the entries, in bytes
+	 */
+
+	public synchronized long getWeight()
+	{
+		return weight;
+	}
+
+	/**
+	 * @return the number of hits
+	 */
+
+	public synchronized long getHits()
+	{
+		return hits;
+	}
+
+	/**
+	 * @return the number of misses
+	 */
+
+	public synchronized long getMisses()
+	{
+		return misses;
+	}
+
+	/**
+	 * @return the ratio of hits over the number of queries
+	 */
+
+	public synchronized double getHitRatio()
+	{
+		return hits + misses == 0 ? 0 : hits / (double) (hits + misses);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------- Overwriting java.lang.Object methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	public synchronized String toString()
+	{
+		return "entries=" + entries.size() + " bytes=" + weight + " hits=" + hits + " misses=" + misses;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Inner class
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Weigher of the entries of a cache
+	 *
+	 * @param <K> type of the keys
+	 * @param <V> type of the values
+	 */
+
+	public interface Weigher<K, V>
+	{
+		/**
+		 * Estimates the bytes retained by an entry
+		 *
+		 * @param key the key
+		 * @param value the value
+		 * @return the weight of the entry
+		 */
+
+		public long weigh(K key, V value);
+	}
+}
@@ -2,20 +2,30 @@ package net.sf.jclec.problem.classification.icrm;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import net.sf.jclec.IIndividual;
 import net.sf.jclec.exprtree.ExprTree;
 import net.sf.jclec.fitness.SimpleValueFitness;
 import net.sf.jclec.problem.classification.classic.ClassicClassificationAlgorithm;
-import net.sf.jclec.problem.classification.classic.ClassicInstance;
 import net.sf.jclec.problem.classification.classic.classifier.CrispRuleBase;
+import net.sf.jclec.problem.classification.coverage.Bitsets;
+import net.sf.jclec.problem.classification.coverage.CoverageEngine;
+import net.sf.jclec.problem.classification.coverage.FitnessCache;
 import net.sf.jclec.problem.classification.exprtree.MultiExprTreeRuleIndividual;
+import net.sf.jclec.problem.classification.icrm.fitting.ICRMCoordinateFittingAlgorithm;
 import net.sf.jclec.problem.classification.icrm.fitting.ICRMFittingAlgorithm;
 import net.sf.jclec.problem.classification.icrm.fitting.ICRMFittingEvaluator;
+import net.sf.jclec.problem.classification.icrm.ga.ICRMExactAlgorithm;
 import net.sf.jclec.problem.classification.icrm.ga.ICRMGAAlgorithm;
+import net.sf.jclec.problem.classification.icrm.ga.ICRMGAEvaluator;
 import net.sf.jclec.problem.classification.rule.Rule;
 import net.sf.jclec.problem.classification.rule.crisp.CrispRule;
-import net.sf.jclec.problem.util.dataset.IExample;
+import net.sf.jclec.problem.util.dataset.ClassPartitionedDataSet;
+import net.sf.jclec.problem.util.dataset.ColumnarDataSet;
+import net.sf.jclec.problem.util.dataset.DatasetView;
+import net.sf.jclec.problem.util.dataset.IColumnarDataset;
+import net.sf.jclec.problem.util.dataset.IDataset;
 
 import org.apache.commons.configuration.Configuration;
 
@@ -43,6 +53,18 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 	// --------------------------------------------------- Properties
 	// ///////////////////////////////////////////////////////////////
 
+	/** Maximum bytes retained by the evaluations cache of the rules */
+
+	private static final long RULE_CACHE_BYTES = 64L << 20;
+
+	/** Maximum bytes retained by the evaluations cache of the searches */
+
+	private static final long SEARCH_CACHE_BYTES = 32L << 20;
+
+	/** Maximum bytes retained by the evaluations cache of the fitting */
+
+	private static final long FITTING_CACHE_BYTES = 8L << 20;
+
 	/** Individuals recombinator */
 
 	protected ICRMMutator mutator;
@@ -71,9 +93,61 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 
 	private List<IIndividual>[] initialRules;
 	
-	/** A copy of the instances from the train dataset */
+	/** Instances of the classes not-yet covered, a view of the train set when it is columnar or its examples partitioned by class otherwise */
+	
+	private IDataset coveringSet;
 
-	private ArrayList<IExample> trainSetCopy;
+	/** Covered rows of each class not-yet covered by the initial rules, null if the train set is not columnar */
+	
+	private Map<String, int[]> initialCounts;
+
+	/** Order the conditions of the final rules by their selectivity on the train set */
+	
+	private boolean orderConditions = false;
+	
+	/** Random streams of the searches */
+	
+	private ICRMRandGenFactory streams;
+	
+	/** Run the independent searches concurrently */
+	
+	private boolean parallel = false;
+	
+	/** Number of workers of the executor when the searches run concurrently */
+	
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	
+	/** Minimum cost of a batch evaluated in parallel, in examples evaluated */
+	
+	private long inlineCost = ICRMExecutor.DEFAULT_INLINE_COST;
+	
+	/** Executor of the searches and the evaluations of the run */
+	
+	private transient ICRMExecutor executor;
+	
+	/** Metrics of the executor and the caches of the last run */
+	
+	private String executionReport;
+	
+	/** Search the thresholds of the conditions by a sweep of the sorted values instead of the genetic algorithm */
+	
+	private boolean exactSearch = false;
+	
+	/** Fit the thresholds of the rule base by coordinate descent instead of random perturbations */
+	
+	private boolean coordinateFitting = false;
+	
+	/** Evaluations cache of the rules of the run */
+	
+	private transient FitnessCache<ICRMEvaluator.Evaluation> ruleCache;
+	
+	/** Evaluations cache of the searches of the run */
+	
+	private transient FitnessCache<Double> searchCache;
+	
+	/** Evaluations cache of the fitting of the run */
+	
+	private transient FitnessCache<Double> fittingCache;
 
 	private boolean existsIndividualBeatable;
 
@@ -125,6 +199,169 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 	public int getNumberAttributes() {
 		return numberAttributes;
 	}
+	
+	/**
+	 * @return true if the conditions of the rules are ordered by selectivity
+	 */
+	
+	public boolean isOrderConditions() {
+		return orderConditions;
+	}
+	
+	/**
+	 * @param orderConditions order the conditions of the rules by selectivity
+	 */
+	
+	public void setOrderConditions(boolean orderConditions) {
+		this.orderConditions = orderConditions;
+	}
+	
+	/**
+	 * @return the random streams of the searches
+	 */
+	
+	public ICRMRandGenFactory getStreams() {
+		return streams;
+	}
+	
+	/**
+	 * @return true if the independent searches run concurrently
+	 */
+	
+	public boolean isParallel() {
+		return parallel;
+	}
+	
+	/**
+	 * @param parallel run the independent searches concurrently
+	 */
+	
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * @return the number of workers of the executor when the searches run concurrently
+	 */
+	
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * @param parallelism the number of workers of the executor when the searches run concurrently
+	 */
+	
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+	
+	/**
+	 * @return the minimum cost of a batch evaluated in parallel, in examples evaluated
+	 */
+	
+	public long getInlineCost() {
+		return inlineCost;
+	}
+	
+	/**
+	 * @param inlineCost the minimum cost of a batch evaluated in parallel, in examples evaluated
+	 */
+	
+	public void setInlineCost(long inlineCost) {
+		this.inlineCost = inlineCost;
+	}
+	
+	/**
+	 * @return the executor of the run, null out of a run
+	 */
+	
+	public ICRMExecutor getExecutor() {
+		return executor;
+	}
+	
+	/**
+	 * @return the metrics of the executor and the caches of the last run, null if no run has finished
+	 */
+	
+	public String getExecutionReport() {
+		return executionReport;
+	}
+	
+	/**
+	 * @return true if the thresholds of the conditions are searched by a sweep of the sorted values
+	 */
+	
+	public boolean isExactSearch() {
+		return exactSearch;
+	}
+	
+	/**
+	 * @param exactSearch search the thresholds of the conditions by a sweep of the sorted values
+	 */
+	
+	public void setExactSearch(boolean exactSearch) {
+		this.exactSearch = exactSearch;
+	}
+	
+	/**
+	 * @return true if the thresholds of the rule base are fitted by coordinate descent
+	 */
+	
+	public boolean isCoordinateFitting() {
+		return coordinateFitting;
+	}
+	
+	/**
+	 * @param coordinateFitting fit the thresholds of the rule base by coordinate descent
+	 */
+	
+	public void setCoordinateFitting(boolean coordinateFitting) {
+		this.coordinateFitting = coordinateFitting;
+	}
+	
+	/**
+	 * @return the evaluations cache of the searches of the run
+	 */
+	
+	public FitnessCache<Double> getSearchCache() {
+		return searchCache;
+	}
+	
+	/**
+	 * Creates the search of the conditions of the rules of a class
+	 * 
+	 * @param Class the class
+	 * @param rules the initial rules of each attribute
+	 * @param dataset the instances to cover
+	 * @param streams the random streams of the search
+	 * @return the genetic algorithm, or the exact search if it is enabled
+	 */
+	
+	public ICRMGAAlgorithm createSearch(int Class, List<IIndividual>[] rules, IDataset dataset, ICRMRandGenFactory streams) {
+		if(exactSearch)
+			return new ICRMExactAlgorithm(this, Class, rules, dataset, streams);
+		else
+			return new ICRMGAAlgorithm(this, Class, rules, dataset, streams);
+	}
+	
+	/**
+	 * Creates the fitting of the thresholds of the rule base
+	 * 
+	 * @param classifier the rule base
+	 * @return the random fitting, or the coordinate descent if it is enabled
+	 */
+	
+	public ICRMFittingAlgorithm createFitting(CrispRuleBase classifier) {
+		ICRMFittingEvaluator fittingEvaluator = new ICRMFittingEvaluator(getTrainSet());
+		fittingEvaluator.setCache(fittingCache);
+		fittingEvaluator.setExecutor(executor);
+		
+		if(coordinateFitting)
+			return new ICRMCoordinateFittingAlgorithm(this, classifier, fittingEvaluator);
+		else
+			return new ICRMFittingAlgorithm(this, classifier, fittingEvaluator);
+	}
 
 	// ///////////////////////////////////////////////////////////////
 	// ---------------------------- Implementing IConfigure interface
@@ -138,6 +375,13 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 	{
 		// Call super.configure() method
 		super.configure(settings);
+		
+		orderConditions = settings.getBoolean("order-conditions", false);
+		parallel = settings.getBoolean("parallel", false);
+		exactSearch = settings.getBoolean("exact-search", false);
+		coordinateFitting = settings.getBoolean("coordinate-fitting", false);
+		parallelism = settings.getInt("parallelism", parallelism);
+		inlineCost = settings.getLong("inline-cost", inlineCost);
 
 		prepare();
 	}
@@ -174,7 +418,14 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 		
 		// Create the initial rules only in the first execution
 		if (initialRules == null) {
-			trainSetCopy = getTrainSet().getExamples();
+			// The streams of the searches are derived from the seed of the algorithm
+			streams = new ICRMRandGenFactory(randgen.choose(1, Integer.MAX_VALUE));
+			
+			if(getTrainSet() instanceof ColumnarDataSet)
+				coveringSet = new DatasetView((ColumnarDataSet) getTrainSet());
+			else
+				coveringSet = new ClassPartitionedDataSet(getTrainSet());
+			
 			initialRules = new ArrayList[numberAttributes];
 
 			for (int i = 0; i < numberAttributes; i++)
@@ -182,17 +433,67 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 
 			for (int i = 0; i < getTrainSet().getMetadata().numberOfClasses(); i++)
 				nonCoveredClasses.add(i);
+			
+			// The executor and its metrics belong to the run
+			executor = new ICRMExecutor(parallel ? parallelism : 1, inlineCost);
+			
+			// The evaluations are only cached during the run
+			ruleCache = new FitnessCache<ICRMEvaluator.Evaluation>(RULE_CACHE_BYTES, ICRMEvaluator.Evaluation.WEIGHER);
+			searchCache = new FitnessCache<Double>(SEARCH_CACHE_BYTES, FitnessCache.FITNESS_WEIGHER);
+			fittingCache = new FitnessCache<Double>(FITTING_CACHE_BYTES, FitnessCache.FITNESS_WEIGHER);
+			
+			if(evaluator instanceof ICRMEvaluator)
+			{
+				((ICRMEvaluator) evaluator).setCache(ruleCache);
+				((ICRMEvaluator) evaluator).setExecutor(executor);
+			}
 		}
 		
+		// The initial rules only differ in the consequent between the classes, so they are evaluated once for all of them
+		ICRMGAEvaluator initialEvaluator = new ICRMGAEvaluator();
+		initialEvaluator.setDataset(coveringSet);
+		initialEvaluator.setCache(searchCache);
+		initialEvaluator.setExecutor(executor);
+		
+		List<IIndividual> rules = new ArrayList<IIndividual>();
+		
+		for (int j = 0; j < numberAttributes; j++)
+			rules.addAll(initialRules[j]);
+		
+		// The covered rows of each class are only counted in the first execution
+		if (initialCounts == null)
+			initialCounts = initialEvaluator.classCounts(rules);
+		
+		initialEvaluator.evaluateClasses(rules, initialCounts, nonCoveredClasses);
+		
+		List<ICRMGAAlgorithm> gaAlgorithms = new ArrayList<ICRMGAAlgorithm>();
+		List<Runnable> searches = new ArrayList<Runnable>();
+		
 		for (int i : nonCoveredClasses)
 		{
+			final ICRMGAAlgorithm gaAlgorithm = createSearch(i, initialRules, coveringSet,
+					streams.split(ICRMRandGenFactory.CLASS_SEARCH, execution, i));
+			
+			gaAlgorithms.add(gaAlgorithm);
+			searches.add(new Runnable()
+			{
+				public void run()
+				{
+					gaAlgorithm.execute();
+				}
+			});
+		}
+		
+		// The searches of the classes are independent
+		executor.invokeAll(searches);
+		
+		for (ICRMGAAlgorithm gaAlgorithm : gaAlgorithms)
+		{
+			int i = gaAlgorithm.Class;
+			
 			bset[i] = new ArrayList<IIndividual>();
 			pset[i] = new ArrayList<IIndividual>();
 			mset[i] = new ArrayList<IIndividual>();
-			
-			ICRMGAAlgorithm gaAlgorithm = new ICRMGAAlgorithm(this,i,initialRules, getTrainSet());
-			
-			gaAlgorithm.execute();
 
 			for(int j = 0; j < numberAttributes; j++)
 			{
@@ -201,7 +502,7 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 				CrispRule phenotype = new CrispRule(genotype);
 				phenotype.setConsequent(i);
 				
-				ICRMIndividual individual = new ICRMIndividual(genotype, phenotype, null, getTrainSet().copy());
+				ICRMIndividual individual = new ICRMIndividual(genotype, phenotype, null, coveringSet.copy());
 				
 				bset[i].add(individual);
 			}
@@ -239,7 +540,10 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 			for(IIndividual ind : mset[i])
 				if(ind != null)
 				{
-					((ICRMIndividual) ind).getDataset().setExamples(getTrainSet().getExamples());
+					if(coveringSet instanceof DatasetView)
+						((ICRMIndividual) ind).setDataset(coveringSet);
+					else
+						((ICRMIndividual) ind).setDataset(coveringSet.copy());
 					created.add(ind);
 				}
 			
@@ -312,11 +616,10 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 			if (nonCoveredClasses.size() == 1)
 			{
 				((CrispRuleBase) classifier).setDefaultClass(nonCoveredClasses.get(0));
-				getTrainSet().setExamples(trainSetCopy);
 				
 				if(((ICRMExprTreeSpecies) species).existNumericalAttributes())
 				{
-					ICRMFittingAlgorithm fitting = new ICRMFittingAlgorithm(this, (CrispRuleBase) classifier, new ICRMFittingEvaluator(getTrainSet()));
+					ICRMFittingAlgorithm fitting = createFitting((CrispRuleBase) classifier);
 					fitting.execute();
 					
 					if(!classifier.equals((MultiExprTreeRuleIndividual) fitting.getInhabitants().get(0)))
@@ -325,6 +628,11 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 					}
 				}
 				
+				if(orderConditions)
+					orderConditions();
+				
+				finishRun();
+				
 				state = FINISHED;
 				return;
 			}
@@ -341,15 +649,69 @@ public class ICRMAlgorithm extends ClassicClassificationAlgorithm
 		}
 	}
 
+	/**
+	 * Records the metrics of the executor and the caches when the training
+	 * ends. Then the executor is stopped and the caches are cleared, so they
+	 * do not keep the coverage engines and the views of the train set alive.
+	 */
+	
+	private void finishRun()
+	{
+		executionReport = "Executor: " + executor + "\n"
+				+ "Rule cache: " + ruleCache + "\n"
+				+ "Search cache: " + searchCache + "\n"
+				+ "Fitting cache: " + fittingCache + "\n";
+		
+		if(evaluator instanceof ICRMEvaluator)
+		{
+			((ICRMEvaluator) evaluator).setCache(null);
+			((ICRMEvaluator) evaluator).setExecutor(null);
+		}
+		
+		executor.shutdown();
+		
+		ruleCache.clear();
+		searchCache.clear();
+		fittingCache.clear();
+	}
+	
+	/**
+	 * Orders the conditions of the rules of the classifier by their
+	 * selectivity on the train set
+	 */
+	
+	private void orderConditions()
+	{
+		CoverageEngine engine;
+		
+		if(getTrainSet() instanceof IColumnarDataset)
+			engine = ((IColumnarDataset) getTrainSet()).getCoverageEngine();
+		else
+			engine = new ColumnarDataSet(getTrainSet()).getCoverageEngine();
+		
+		for(Rule rule : ((CrispRuleBase) classifier).getClassificationRules())
+			rule.orderConditions(engine);
+	}
+	
 	private void removeInstances(int Class)
 	{
-		ArrayList<IExample> instances = getTrainSet().getExamples();
-		ArrayList<IExample> survivals = new ArrayList<IExample>();
-
-		for(IExample instance : instances)
-			if (((ClassicInstance) instance).getClassValue() != Class)
-				survivals.add(instance);
-
-		getTrainSet().setExamples(survivals);
+		// The train set is not modified, the remaining instances are kept as a view
+		if(coveringSet instanceof DatasetView)
+		{
+			CoverageEngine engine = ((DatasetView) coveringSet).getCoverageEngine();
+			
+			coveringSet = ((DatasetView) coveringSet).select(Bitsets.not(engine.classMask(Class), engine.size()));
+			
+			// The whole class is removed, so its rows are subtracted from the counts of the initial rules
+			if(initialCounts != null)
+				for(int[] counts : initialCounts.values())
+					if(Class < counts.length - 1)
+						counts[Class] = 0;
+			
+			return;
+		}
+		
+		// The class is deactivated in the partitions of the examples
+		((ClassPartitionedDataSet) coveringSet).removeClass(Class);
 	}
 }
\ No newline at end of file
@@ -2,15 +2,24 @@ package net.sf.jclec.problem.classification.icrm;
 
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 
 import net.sf.jclec.IFitness;
 import net.sf.jclec.IIndividual;
-import net.sf.jclec.base.AbstractParallelEvaluator;
+import net.sf.jclec.base.AbstractEvaluator;
 import net.sf.jclec.fitness.SimpleValueFitness;
 import net.sf.jclec.fitness.ValueFitnessComparator;
 import net.sf.jclec.problem.classification.classic.ClassicClassificationMetadata;
 import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.coverage.Bitsets;
+import net.sf.jclec.problem.classification.coverage.ConfusionMatrix;
+import net.sf.jclec.problem.classification.coverage.CoverageEngine;
+import net.sf.jclec.problem.classification.coverage.FitnessCache;
 import net.sf.jclec.problem.classification.rule.Rule;
+import net.sf.jclec.problem.util.dataset.ClassPartitionedDataSet;
+import net.sf.jclec.problem.util.dataset.DatasetView;
+import net.sf.jclec.problem.util.dataset.IColumnarDataset;
+import net.sf.jclec.problem.util.dataset.IDataset;
 import net.sf.jclec.problem.util.dataset.IExample;
 
 /**
@@ -21,7 +30,7 @@ import net.sf.jclec.problem.util.dataset.IExample;
  * @author Sebastian Ventura
  */
 
-public class ICRMEvaluator extends AbstractParallelEvaluator
+public class ICRMEvaluator extends AbstractEvaluator
 {
 	/////////////////////////////////////////////////////////////////
 	// --------------------------------------- Serialization constant
@@ -35,6 +44,14 @@ public class ICRMEvaluator extends AbstractParallelEvaluator
 	// --------------------------------------------------- Properties
 	/////////////////////////////////////////////////////////////////
 	
+	/** Evaluations cache of the run, null to not cache the evaluations */
+	
+	private transient FitnessCache<Evaluation> cache;
+	
+	/** Executor of the run, null to evaluate in the calling thread */
+	
+	private transient ICRMExecutor executor;
+	
 	/** Maximize the fitness function */
 	
 	private boolean maximize = true;
@@ -56,6 +73,50 @@ public class ICRMEvaluator extends AbstractParallelEvaluator
 		super();
 	}
 
+	/**
+	 * Get the evaluations cache
+	 * 
+	 * @return the cache, null if the evaluations are not cached
+	 */
+	
+	FitnessCache<Evaluation> getCache()
+	{
+		return cache;
+	}
+	
+	/**
+	 * Set the evaluations cache, owned by the run of the algorithm
+	 * 
+	 * @param cache the cache, null to not cache the evaluations
+	 */
+	
+	void setCache(FitnessCache<Evaluation> cache)
+	{
+		this.cache = cache;
+	}
+	
+	/**
+	 * Get the executor of the evaluations
+	 * 
+	 * @return the executor, null if the evaluations run in the calling thread
+	 */
+	
+	ICRMExecutor getExecutor()
+	{
+		return executor;
+	}
+	
+	/**
+	 * Set the executor of the evaluations, owned by the run of the algorithm
+	 * 
+	 * @param executor the executor, null to evaluate in the calling thread
+	 */
+	
+	void setExecutor(ICRMExecutor executor)
+	{
+		this.executor = executor;
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// ------------------------ Overwriting AbstractEvaluator methods
 	/////////////////////////////////////////////////////////////////
@@ -71,38 +132,144 @@ public class ICRMEvaluator extends AbstractParallelEvaluator
 	public void evaluate(IIndividual ind) 
 	{
 		// Individual conversion
-		Rule rule = (Rule) ((ICRMIndividual) ind).getPhenotype();
+		ICRMIndividual individual = (ICRMIndividual) ind;
+		Rule rule = (Rule) individual.getPhenotype();
+		
+		// The parent of the individual is only needed by this evaluation
+		IDataset parentDataset = individual.getParentDataset();
+		Rule condition = individual.getCondition();
+		individual.setLineage(null, null);
 		
 		int tp = 0, fp = 0, tn = 0, fn = 0;
 		
-		ClassicClassificationMetadata metadata = (ClassicClassificationMetadata) ((ICRMIndividual) ind).getDataset().getMetadata();
+		ClassicClassificationMetadata metadata = (ClassicClassificationMetadata) individual.getDataset().getMetadata();
+		
+		if(individual.getDataset() instanceof IColumnarDataset)
+		{
+			IColumnarDataset dataset = (IColumnarDataset) individual.getDataset();
+			CoverageEngine engine = dataset.getCoverageEngine();
+			
+			FitnessCache.Key key = new FitnessCache.Key(rule.getKey(), engine.getId(), rule.getConsequent());
+			
+			Evaluation evaluation = cache != null ? cache.get(key) : null;
+			
+			if(evaluation == null)
+			{
+				ConfusionMatrix confusion;
+				IDataset covered;
+				
+				if(parentDataset instanceof DatasetView && ((DatasetView) parentDataset).getSource() == engine)
+				{
+					// Only the new condition is evaluated, on the rows covered by the parent
+					DatasetView parent = (DatasetView) parentDataset;
+					CoverageEngine parentEngine = parent.getCoverageEngine();
+					
+					long[] rows = parentEngine.coverage(condition);
+					
+					tp = Bitsets.andCardinality(rows, parentEngine.classMask(rule.getConsequent()));
+					fp = Bitsets.cardinality(rows) - tp;
+					fn = engine.classCount(rule.getConsequent()) - tp;
+					tn = engine.size() - tp - fp - fn;
+					
+					confusion = new ConfusionMatrix(tp, fp, tn, fn);
+					covered = parent.narrow(rows);
+					
+					evaluation = Evaluation.of(confusion, rule, metadata, ((DatasetView) covered).getRows(), engine.size());
+				}
+				else
+				{
+					// Count the confusion matrix using the coverage bitsets and keep the covered rows
+					long[] rows = engine.coverage(rule);
+					
+					confusion = engine.confusion(rows, rule.getConsequent());
+					covered = dataset.select(rows);
+					
+					evaluation = Evaluation.of(confusion, rule, metadata, rows);
+				}
+				
+				if(cache != null)
+					cache.put(key, evaluation);
+				
+				individual.setDataset(covered);
+			}
+			else
+				individual.setDataset(evaluation.covered(dataset, engine));
+			
+			ind.setFitness(new SimpleValueFitness(evaluation.fitness));
+			return;
+		}
 		
 		//Calculate the confusion matrix for each class
 		
-		ArrayList<IExample> coveredInstances = new ArrayList<IExample>();
+		// The covered instances are kept as a bitset of the examples evaluated
+		List<IExample> examples;
+		long[] covered;
 		
-		for(IExample instance : ((ICRMIndividual) ind).getDataset().getExamples())
+		if(parentDataset != null && individual.getDataset() instanceof ClassPartitionedDataSet)
 		{
-			double value = ((ClassicInstance) instance).getClassValue();
+			// Only the new condition is evaluated, on the instances covered by the parent
+			ClassPartitionedDataSet dataset = (ClassPartitionedDataSet) individual.getDataset();
+			
+			examples = parentDataset.getExamples();
+			covered = Bitsets.empty(examples.size());
 			
-			if((Boolean) rule.covers(instance))
+			for(int i = 0; i < examples.size(); i++)
 			{
-				coveredInstances.add(instance);
-				if (value == rule.getConsequent())
-					tp++;
-				else
-					fp++;
+				IExample instance = examples.get(i);
+				
+				if((Boolean) condition.covers(instance))
+				{
+					Bitsets.set(covered, i);
+					if (((ClassicInstance) instance).getClassValue() == rule.getConsequent())
+						tp++;
+					else
+						fp++;
+				}
 			}
-			else
+			
+			fn = dataset.classCount(rule.getConsequent()) - tp;
+			tn = dataset.numberOfExamples() - tp - fp - fn;
+		}
+		else
+		{
+			examples = individual.getDataset().getExamples();
+			covered = Bitsets.empty(examples.size());
+			
+			for(int i = 0; i < examples.size(); i++)
 			{
-				if (value != rule.getConsequent())
-					tn++;
+				IExample instance = examples.get(i);
+				double value = ((ClassicInstance) instance).getClassValue();
+				
+				if((Boolean) rule.covers(instance))
+				{
+					Bitsets.set(covered, i);
+					if (value == rule.getConsequent())
+						tp++;
+					else
+						fp++;
+				}
 				else
-					fn++;
+				{
+					if (value != rule.getConsequent())
+						tn++;
+					else
+						fn++;
+				}
 			}
 		}
 		
-		((ICRMIndividual) ind).getDataset().setExamples(coveredInstances);
+		// The partitioned subsets are only built when the individual is used as a parent
+		if(individual.getDataset() instanceof ClassPartitionedDataSet)
+			individual.setDataset(((ClassPartitionedDataSet) individual.getDataset()).select(examples, covered));
+		else
+		{
+			ArrayList<IExample> coveredInstances = new ArrayList<IExample>(Bitsets.cardinality(covered));
+			
+			for(int i : Bitsets.toArray(covered))
+				coveredInstances.add(examples.get(i));
+			
+			individual.getDataset().setExamples(coveredInstances);
+		}
 		
 		double fitness;
 		double se, sp;
@@ -124,6 +291,35 @@ public class ICRMEvaluator extends AbstractParallelEvaluator
 		ind.setFitness(new SimpleValueFitness(fitness));
 	}
 	
+	/**
+	 * Evaluates a batch of individuals in the executor of the run, or in
+	 * the calling thread if there is none. The cost of the batch is the number of examples the rules are matched against.
+	 * 
+	 * @param inds Individuals to evaluate
+	 */
+	
+	@Override
+	public void evaluate(List<IIndividual> inds)
+	{
+		long cost = 0;
+		
+		for(IIndividual ind : inds)
+			cost += ((ICRMIndividual) ind).getDataset().numberOfExamples();
+		
+		synchronized(this)
+		{
+			numberOfEvaluations += inds.size();
+		}
+		
+		(executor != null ? executor : ICRMExecutor.sequential()).evaluate(inds, cost, new ICRMExecutor.Evaluation()
+		{
+			public void evaluate(IIndividual ind)
+			{
+				ICRMEvaluator.this.evaluate(ind);
+			}
+		});
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -137,4 +333,130 @@ public class ICRMEvaluator extends AbstractParallelEvaluator
 		// Return comparator
 		return comparator;
 	}
+	
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Inner class
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Cached evaluation of a rule: its fitness and the rows it covers. The
+	 * rows are kept as indexes or as a bitset, whichever is smaller, and
+	 * the view of the rows is created again when the evaluation is reused.
+	 */
+	
+	static final class Evaluation
+	{
+		/** Weigher of the cached evaluations */
+		
+		static final FitnessCache.Weigher<FitnessCache.Key, Evaluation> WEIGHER = new FitnessCache.Weigher<FitnessCache.Key, Evaluation>()
+		{
+			public long weigh(FitnessCache.Key key, Evaluation evaluation)
+			{
+				return key.bytes() + evaluation.bytes();
+			}
+		};
+		
+		/** Fitness of the rule */
+		
+		private final double fitness;
+		
+		/** Rows covered by the rule, null if they are kept as a bitset */
+		
+		private final int[] rows;
+		
+		/** Bitset of the rows covered by the rule, null if they are kept as indexes */
+		
+		private final long[] selection;
+		
+		private Evaluation(double fitness, int[] rows, long[] selection)
+		{
+			this.fitness = fitness;
+			this.rows = rows;
+			this.selection = selection;
+		}
+		
+		/**
+		 * Evaluation of a rule which covers the rows of a bitset
+		 * 
+		 * @param confusion the confusion matrix of the rule
+		 * @param rule the rule
+		 * @param metadata the metadata of the dataset
+		 * @param covered the bitset of the covered rows, which is not modified
+		 * @return the evaluation
+		 */
+		
+		static Evaluation of(ConfusionMatrix confusion, Rule rule, ClassicClassificationMetadata metadata, long[] covered)
+		{
+			if(Bitsets.cardinality(covered) < 2 * covered.length)
+				return new Evaluation(fitness(confusion, rule, metadata), Bitsets.toArray(covered), null);
+			else
+				return new Evaluation(fitness(confusion, rule, metadata), null, covered);
+		}
+		
+		/**
+		 * Evaluation of a rule which covers some rows
+		 * 
+		 * @param confusion the confusion matrix of the rule
+		 * @param rule the rule
+		 * @param metadata the metadata of the dataset
+		 * @param covered the covered rows in increasing order
+		 * @param size the number of rows of the dataset
+		 * @return the evaluation
+		 */
+		
+		static Evaluation of(ConfusionMatrix confusion, Rule rule, ClassicClassificationMetadata metadata, int[] covered, int size)
+		{
+			if(covered.length < 2 * Bitsets.words(size))
+				return new Evaluation(fitness(confusion, rule, metadata), covered, null);
+			
+			long[] bits = Bitsets.empty(size);
+			
+			for(int row : covered)
+				Bitsets.set(bits, row);
+			
+			return new Evaluation(fitness(confusion, rule, metadata), null, bits);
+		}
+		
+		/**
+		 * Fitness of a rule: the product of the sensitivity and the
+		 * specificity, penalized by the number of conditions
+		 * 
+		 * @param confusion the confusion matrix of the rule
+		 * @param rule the rule
+		 * @param metadata the metadata of the dataset
+		 * @return the fitness
+		 */
+		
+		private static double fitness(ConfusionMatrix confusion, Rule rule, ClassicClassificationMetadata metadata)
+		{
+			return confusion.getSensitivity() * confusion.getSpecificity() - 0.01*((rule.getAntecedent().size()/3)/(double)(metadata.numberOfAttributes()));
+		}
+		
+		/**
+		 * View of the covered rows
+		 * 
+		 * @param dataset the dataset which provides the name and the metadata
+		 * @param engine the coverage engine of the rows of the dataset
+		 * @return the view
+		 */
+		
+		IDataset covered(IDataset dataset, CoverageEngine engine)
+		{
+			if(rows != null)
+				return new DatasetView(dataset, engine, rows);
+			else
+				return new DatasetView(dataset, engine, selection);
+		}
+		
+		/**
+		 * Estimates the bytes retained by the evaluation
+		 * 
+		 * @return the bytes of the evaluation
+		 */
+		
+		long bytes()
+		{
+			return 32 + 16 + (rows != null ? 4L * rows.length : 8L * selection.length);
+		}
+	}
 }
\ No newline at end of file
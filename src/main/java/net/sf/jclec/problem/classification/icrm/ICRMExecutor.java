@@ -0,0 +1,404 @@
+package net.sf.jclec.problem.classification.icrm;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.jclec.IIndividual;
+
+/**
+ * Executor of the independent searches and the evaluations of a run of
+ * ICRM
+ *
+ * Each run owns its executor, so the pool, the settings and the metrics
+ * of concurrent runs are independent. The searches run on a work-stealing
+ * pool bounded by the parallelism of the executor, so searches of
+ * different length are balanced between the workers. Searches started
+ * from a worker of the pool are run in the same pool, and the worker
+ * helps to run them instead of blocking. An executor with a parallelism
+ * of one has no pool and runs everything in the calling thread.
+ *
+ * The evaluators of ICRM submit their batches of individuals to the same
+ * pool. Batches whose cost is below a threshold are evaluated inline by
+ * the calling thread, the rest are split between the workers. The
+ * evaluations hold one of a fixed number of permits while they run. A
+ * worker waiting for a permit is a managed blocker, so the pool starts a
+ * spare worker meanwhile and the nested searches never wait for a worker
+ * which is blocked.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public final class ICRMExecutor
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Default minimum cost of a batch evaluated in parallel, in examples evaluated */
+
+	public static final long DEFAULT_INLINE_COST = 1 << 16;
+
+	/** Pool shared by the searches and the evaluations, null if the parallelism is one */
+
+	private final ForkJoinPool pool;
+
+	/** Permits of the evaluations, one for each worker */
+
+	private final Semaphore permits;
+
+	/** Number of workers and evaluation permits */
+
+	private final int parallelism;
+
+	/** Minimum cost of a batch evaluated in parallel */
+
+	private final long inlineCost;
+
+	/** Number of batches evaluated inline */
+
+	private final AtomicLong inlineBatches = new AtomicLong();
+
+	/** Number of batches evaluated in parallel */
+
+	private final AtomicLong parallelBatches = new AtomicLong();
+
+	/** Number of individuals evaluated */
+
+	private final AtomicLong evaluations = new AtomicLong();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param parallelism the number of workers and evaluation permits
+	 * @param inlineCost the minimum cost of a batch evaluated in parallel, in examples evaluated
+	 */
+
+	public ICRMExecutor(int parallelism, long inlineCost)
+	{
+		if(parallelism < 1)
+			throw new IllegalArgumentException("Illegal parallelism: " + parallelism);
+
+		this.parallelism = parallelism;
+		this.inlineCost = inlineCost;
+		this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+		this.permits = new Semaphore(parallelism);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates an executor which runs everything in the calling thread,
+	 * for the evaluators used out of a run
+	 *
+	 * @return the executor
+	 */
+
+	public static ICRMExecutor sequential()
+	{
+		return new ICRMExecutor(1, DEFAULT_INLINE_COST);
+	}
+
+	/**
+	 * Runs a list of tasks and waits until all of them finish. The tasks
+	 * run concurrently if the executor has a pool, or one after another in
+	 * the calling thread otherwise.
+	 *
+	 * @param tasks the tasks
+	 */
+
+	public void invokeAll(List<? extends Runnable> tasks)
+	{
+		if(pool == null || tasks.size() < 2)
+		{
+			for(Runnable task : tasks)
+				task.run();
+
+			return;
+		}
+
+		final List<ForkJoinTask<?>> forks = new ArrayList<ForkJoinTask<?>>(tasks.size());
+
+		for(Runnable task : tasks)
+			forks.add(ForkJoinTask.adapt(task));
+
+		if(ForkJoinTask.getPool() == pool)
+			ForkJoinTask.invokeAll(forks);
+		else
+			pool.invoke(new RecursiveAction()
+			{
+				private static final long serialVersionUID = 1L;
+
+				protected void compute()
+				{
+					ForkJoinTask.invokeAll(forks);
+				}
+			});
+	}
+
+	/**
+	 * Evaluates a batch of individuals. Batches with a single individual
+	 * or a cost below the inline threshold are evaluated by the calling
+	 * thread, the rest are split between the workers of the pool.
+	 *
+	 * @param inds the individuals
+	 * @param cost the estimated cost of the batch, in examples evaluated
+	 * @param evaluation the evaluation of an individual
+	 */
+
+	public void evaluate(final List<IIndividual> inds, long cost, final Evaluation evaluation)
+	{
+		evaluations.addAndGet(inds.size());
+
+		if(pool == null || inds.size() < 2 || cost < inlineCost)
+		{
+			inlineBatches.incrementAndGet();
+
+			evaluate(new Runnable()
+			{
+				public void run()
+				{
+					for(IIndividual ind : inds)
+						evaluation.evaluate(ind);
+				}
+			});
+
+			return;
+		}
+
+		parallelBatches.incrementAndGet();
+
+		int chunks = Math.min(inds.size(), parallelism);
+		List<Runnable> tasks = new ArrayList<Runnable>(chunks);
+
+		for(int c = 0; c < chunks; c++)
+		{
+			final int from = (int) ((long) inds.size() * c / chunks);
+			final int to = (int) ((long) inds.size() * (c + 1) / chunks);
+
+			tasks.add(new Runnable()
+			{
+				public void run()
+				{
+					evaluate(new Runnable()
+					{
+						public void run()
+						{
+							for(int i = from; i < to; i++)
+								evaluation.evaluate(inds.get(i));
+						}
+					});
+				}
+			});
+		}
+
+		invokeAll(tasks);
+	}
+
+	/**
+	 * Runs an evaluation holding a permit
+	 *
+	 * @param evaluation the evaluation, bound by the processor
+	 */
+
+	public void evaluate(Runnable evaluation)
+	{
+		PermitBlocker blocker = new PermitBlocker(permits);
+
+		managedBlock(blocker);
+
+		try
+		{
+			evaluation.run();
+		}
+		finally
+		{
+			blocker.release();
+		}
+	}
+
+	/**
+	 * Gets the pool shared by the searches and the evaluations
+	 *
+	 * @return the pool, null if the executor runs everything in the calling thread
+	 */
+
+	public ForkJoinPool getPool()
+	{
+		return pool;
+	}
+
+	/**
+	 * Gets the number of workers and evaluation permits
+	 *
+	 * @return the parallelism
+	 */
+
+	public int getParallelism()
+	{
+		return parallelism;
+	}
+
+	/**
+	 * Gets the minimum cost of a batch evaluated in parallel
+	 *
+	 * @return the cost, in examples evaluated
+	 */
+
+	public long getInlineCost()
+	{
+		return inlineCost;
+	}
+
+	/**
+	 * Gets the number of batches evaluated inline
+	 *
+	 * @return the number of batches
+	 */
+
+	public long getInlineBatches()
+	{
+		return inlineBatches.get();
+	}
+
+	/**
+	 * Gets the number of batches evaluated in parallel
+	 *
+	 * @return the number of batches
+	 */
+
+	public long getParallelBatches()
+	{
+		return parallelBatches.get();
+	}
+
+	/**
+	 * Gets the number of individuals evaluated
+	 *
+	 * @return the number of individuals
+	 */
+
+	public long getEvaluations()
+	{
+		return evaluations.get();
+	}
+
+	/**
+	 * Stops the workers of the pool once the run has finished
+	 */
+
+	public void shutdown()
+	{
+		if(pool != null)
+			pool.shutdown();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------- Overwriting java.lang.Object methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	public String toString()
+	{
+		return "parallelism=" + parallelism + " evaluations=" + evaluations.get()
+				+ " inline batches=" + inlineBatches.get() + " parallel batches=" + parallelBatches.get();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Runs a managed blocker
+	 *
+	 * @param blocker the blocker
+	 */
+
+	private static void managedBlock(ForkJoinPool.ManagedBlocker blocker)
+	{
+		try
+		{
+			ForkJoinPool.managedBlock(blocker);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for an evaluation", e);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------ Inner classes
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Evaluation of an individual
+	 */
+
+	public interface Evaluation
+	{
+		/**
+		 * Evaluates an individual
+		 *
+		 * @param ind the individual
+		 */
+
+		public void evaluate(IIndividual ind);
+	}
+
+	/**
+	 * Blocker which acquires a permit
+	 */
+
+	private static final class PermitBlocker implements ForkJoinPool.ManagedBlocker
+	{
+		/** The permits */
+
+		private final Semaphore permits;
+
+		/** The permit has been acquired */
+
+		private boolean acquired;
+
+		public PermitBlocker(Semaphore permits)
+		{
+			this.permits = permits;
+		}
+
+		public boolean block() throws InterruptedException
+		{
+			if(!acquired)
+			{
+				permits.acquire();
+				acquired = true;
+			}
+
+			return true;
+		}
+
+		public boolean isReleasable()
+		{
+			if(!acquired)
+				acquired = permits.tryAcquire();
+
+			return acquired;
+		}
+
+		public void release()
+		{
+			permits.release();
+		}
+	}
+}
@@ -37,6 +37,14 @@ public class ICRMIndividual extends ExprTreeRuleIndividual
 	/** The individual is beatable */
 	
 	protected boolean beatable = true;
+	
+	/** Instances covered by the parent of the individual, null if it has no parent */
+	
+	protected transient IDataset parentDataset;
+	
+	/** Condition appended to the antecedent of the parent */
+	
+	protected transient Rule condition;
 
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -106,6 +114,32 @@ public class ICRMIndividual extends ExprTreeRuleIndividual
 		this.dataset = dataset;
 	}
 	
+	/**
+	 * @return the instances covered by the parent, null if the individual has no parent
+	 */
+	public IDataset getParentDataset() {
+		return parentDataset;
+	}
+
+	/**
+	 * @return the condition appended to the antecedent of the parent
+	 */
+	public Rule getCondition() {
+		return condition;
+	}
+
+	/**
+	 * Records the parent of the individual, whose antecedent is the one of
+	 * the parent and a new condition
+	 * 
+	 * @param parentDataset the instances covered by the parent
+	 * @param condition the new condition
+	 */
+	public void setLineage(IDataset parentDataset, Rule condition) {
+		this.parentDataset = parentDataset;
+		this.condition = condition;
+	}
+	
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------- Implementing IIndividual
 	/////////////////////////////////////////////////////////////////
@@ -91,47 +91,109 @@ public class ICRMMutator extends AbstractMutator
 		
 		// Prepare mutation process
 		prepareMutation();
-		// Create a new list to put sons in it
-		sonsBuffer = new ArrayList<IIndividual>();
-    	// For all individuals in "parents" ...
+		
+		// The nested searches are created in parent order
 		int maxIter = parents.size();
-    	for (parentsCounter = 0; parentsCounter < maxIter; parentsCounter++)
-    	{
-			mutateNext();
-    	}
+		ICRMGAAlgorithm[] gaAlgorithms = new ICRMGAAlgorithm[maxIter];
+		List<Runnable> searches = new ArrayList<Runnable>();
+		
+		for (parentsCounter = 0; parentsCounter < maxIter; parentsCounter++)
+		{
+			final ICRMGAAlgorithm gaAlgorithm = createSearch((ICRMIndividual) parentsBuffer.get(parentsCounter), parentsCounter);
+			
+			gaAlgorithms[parentsCounter] = gaAlgorithm;
+			
+			if(gaAlgorithm != null)
+				searches.add(new Runnable()
+				{
+					public void run()
+					{
+						gaAlgorithm.execute();
+					}
+				});
+		}
+		
+		// The searches of the parents are independent
+		parentAlgorithm.getExecutor().invokeAll(searches);
+		
+		// Create a new list to put sons in it, in parent order
+		sonsBuffer = new ArrayList<IIndividual>();
+		
+		for (parentsCounter = 0; parentsCounter < maxIter; parentsCounter++)
+		{
+			if(gaAlgorithms[parentsCounter] == null)
+				sonsBuffer.add(null);
+			else
+				sonsBuffer.add(createSon((ICRMIndividual) parentsBuffer.get(parentsCounter), gaAlgorithms[parentsCounter]));
+		}
+		
 		// Returns sons list
 		return sonsBuffer;
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	protected void mutateNext()
 	{
 		ICRMIndividual p0 = (ICRMIndividual) parentsBuffer.get(parentsCounter);
 		
-		if(p0.beatable == false)
+		ICRMGAAlgorithm gaAlgorithm = createSearch(p0, parentsCounter);
+		
+		if(gaAlgorithm == null)
 		{
 			sonsBuffer.add(null);
 			return;
 		}
 		
-		ExprTree p0_genotype = p0.getGenotype();
+		gaAlgorithm.execute();
 		
+		// Add son
+		sonsBuffer.add(createSon(p0, gaAlgorithm));
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Obtains the attributes used by a rule
+	 * 
+	 * @param genotype the rule genotype
+	 * @return the attributes
+	 */
+	
+	private List<Integer> getAttributes(ExprTree genotype)
+	{
 		List<Integer> attributeList = new ArrayList<Integer>();
 		
-		for(int i = 0; i < p0_genotype.size(); i++)
+		for(int i = 0; i < genotype.size(); i++)
 		{
-			if(p0_genotype.getBlock(i) instanceof AttributeValue)
+			if(genotype.getBlock(i) instanceof AttributeValue)
 			{
-				attributeList.add(((AttributeValue) p0_genotype.getBlock(i)).getAttributeIndex());
+				attributeList.add(((AttributeValue) genotype.getBlock(i)).getAttributeIndex());
 			}
 		}
 		
+		return attributeList;
+	}
+	
+	/**
+	 * Creates the search of the condition to append to a parent
+	 * 
+	 * @param p0 the parent
+	 * @param parent the position of the parent
+	 * @return the search or null if the parent is not mutated
+	 */
+	
+	@SuppressWarnings("unchecked")
+	private ICRMGAAlgorithm createSearch(ICRMIndividual p0, int parent)
+	{
+		if(p0.beatable == false)
+			return null;
+		
+		List<Integer> attributeList = getAttributes(p0.getGenotype());
+		
 		if(attributeList.size() == parentAlgorithm.getNumberAttributes())
-		{
-			sonsBuffer.add(null);
-			return;
-		}
+			return null;
 		
 		List<IIndividual>[] rules = new ArrayList[parentAlgorithm.getNumberAttributes()];
 		
@@ -143,9 +205,25 @@ public class ICRMMutator extends AbstractMutator
 				rules[i] = parentAlgorithm.getInitialRules(i);
 		}
 		
-		ICRMGAAlgorithm gaAlgorithm = new ICRMGAAlgorithm(parentAlgorithm, Class, rules, p0.getDataset());
+		ICRMRandGenFactory streams = parentAlgorithm.getStreams().split(ICRMRandGenFactory.PARENT_SEARCH,
+				parentAlgorithm.getExecution(), parentAlgorithm.getGeneration(), Class, parent);
 		
-		gaAlgorithm.execute();
+		return parentAlgorithm.createSearch(Class, rules, p0.getDataset(), streams);
+	}
+	
+	/**
+	 * Creates the son of a parent appending the best condition found by its search
+	 * 
+	 * @param p0 the parent
+	 * @param gaAlgorithm the search executed
+	 * @return the son
+	 */
+	
+	private IIndividual createSon(ICRMIndividual p0, ICRMGAAlgorithm gaAlgorithm)
+	{
+		ExprTree p0_genotype = p0.getGenotype();
+		
+		List<Integer> attributeList = getAttributes(p0_genotype);
 		
 		ExprTree p1_genotype = null;
 		double bestFitness = -1.0;
@@ -177,7 +255,11 @@ public class ICRMMutator extends AbstractMutator
 		CrispRule son_phenotype = new CrispRule(son_genotype);
 		son_phenotype.setConsequent(p0.getPhenotype().getConsequent());
 		
-		// Add son
-		sonsBuffer.add(new ICRMIndividual(son_genotype, son_phenotype, null, p0.getDataset().copy()));
+		ICRMIndividual son = new ICRMIndividual(son_genotype, son_phenotype, null, p0.getDataset().copy());
+		
+		// The son only covers the instances of the parent which satisfy the new condition
+		son.setLineage(p0.getDataset(), new CrispRule(p1_genotype.copy()));
+		
+		return son;
 	}
-}
\ No newline at end of file
+}
@@ -46,6 +46,35 @@ public class ICRMPopulationReport extends RuleBaseReporter
 	// -------------------------------------------- Protected methods
 	/////////////////////////////////////////////////////////////////
 
+	/**
+	 * Make the classifier report, and the report of the metrics of the
+	 * executor and the caches of the run
+	 * 
+	 * @param algorithm Algorithm
+	 */
+	protected void doClassificationReport(ClassificationAlgorithm algorithm)
+	{
+		super.doClassificationReport(algorithm);
+		
+		String executionReport = ((ICRMAlgorithm) algorithm).getExecutionReport();
+		
+		if(executionReport == null)
+			return;
+		
+		try {
+			// Report file
+			File reportFile = new File(reportDirectory, "ExecutionReport.txt");
+			reportFile.createNewFile();
+			
+			FileWriter reportWriter = new FileWriter(reportFile);
+			reportWriter.write(executionReport);
+			reportWriter.close();
+		}
+		catch (IOException e) {
+			throw new RuntimeException("Error writing report file");
+		}
+	}
+
 	/**
 	 * Make a report with individuals and their fitness for this generation
 	 * 
@@ -0,0 +1,135 @@
+package net.sf.jclec.problem.classification.icrm;
+
+import net.sf.jclec.util.random.IRandGen;
+import net.sf.jclec.util.random.IRandGenFactory;
+import net.sf.jclec.util.random.RanecuFactory;
+
+/**
+ * Splittable factory of random generators
+ *
+ * Each task of ICRM (the search of a class, the population of an
+ * attribute, the search of a parent) obtains its own factory by splitting
+ * the factory of its parent task with the identifiers of the task. The
+ * seeds of the generators only depend on the root seed and the path of
+ * identifiers, so the random streams are the same whatever the number of
+ * threads and the order in which the tasks are run.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class ICRMRandGenFactory implements IRandGenFactory
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 4207326598420181893L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Identifier of the streams of the searches of the classes */
+
+	public static final long CLASS_SEARCH = 1;
+
+	/** Identifier of the streams of the searches of the parents */
+
+	public static final long PARENT_SEARCH = 2;
+
+	/** Identifier of the streams of the fitting of the rule base */
+
+	public static final long FITTING = 3;
+
+	/** Largest seed accepted by the Ranecu generator */
+
+	private static final int MAX_SEED = 2147483562;
+
+	/** Increment of the golden ratio sequence */
+
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	/** Key of the path of the factory */
+
+	private final long key;
+
+	/** Number of generators created */
+
+	private int count;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param seed the root seed
+	 */
+
+	public ICRMRandGenFactory(long seed)
+	{
+		this.key = seed;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates the factory of a task
+	 *
+	 * @param ids the identifiers of the task
+	 * @return the factory of the task
+	 */
+
+	public ICRMRandGenFactory split(long... ids)
+	{
+		long path = key;
+
+		for(long id : ids)
+			path = mix(path ^ mix(id + GOLDEN_GAMMA));
+
+		return new ICRMRandGenFactory(path);
+	}
+
+	/**
+	 * Creates a new generator. The n-th generator created by a factory
+	 * always has the same seed.
+	 *
+	 * @return the generator
+	 */
+
+	public synchronized IRandGen createRandGen()
+	{
+		long z = mix(key + (++count) * GOLDEN_GAMMA);
+
+		RanecuFactory factory = new RanecuFactory();
+		factory.setSeed(1 + (int) ((z >>> 1) % MAX_SEED));
+
+		return factory.createRandGen();
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Mixing function of the SplitMix64 generator
+	 *
+	 * @param z the value to mix
+	 * @return the mixed value
+	 */
+
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+		return z ^ (z >>> 31);
+	}
+}
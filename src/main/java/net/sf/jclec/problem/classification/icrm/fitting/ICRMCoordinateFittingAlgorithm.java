@@ -0,0 +1,449 @@
+package net.sf.jclec.problem.classification.icrm.fitting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import net.sf.jclec.IEvaluator;
+import net.sf.jclec.IIndividual;
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.exprtree.IPrimitive;
+import net.sf.jclec.fitness.SimpleValueFitness;
+import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.ConstantValue;
+import net.sf.jclec.problem.classification.blocks.GreaterOrEqual;
+import net.sf.jclec.problem.classification.blocks.LessOrEqual;
+import net.sf.jclec.problem.classification.blocks.RandomConstantOfContinuousValues;
+import net.sf.jclec.problem.classification.blocks.RandomConstantOfDiscreteValues;
+import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.classic.classifier.CrispRuleBase;
+import net.sf.jclec.problem.classification.exprtree.MultiExprTreeRuleIndividual;
+import net.sf.jclec.problem.classification.icrm.ICRMAlgorithm;
+import net.sf.jclec.problem.classification.rule.Rule;
+import net.sf.jclec.problem.classification.rule.RuleBase;
+import net.sf.jclec.problem.classification.rule.crisp.CrispRule;
+import net.sf.jclec.problem.util.dataset.IColumnarDataset;
+import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.IExample;
+
+/**
+ * ICRM: An Interpretable Classification Rule Mining algorithm
+ * 
+ * Deterministic fitting of the rule base by coordinate descent. The
+ * thresholds of the conditions attr &gt;= value and attr &lt;= value are
+ * refined one at a time. The accuracy of the decision list for every
+ * distinct value of the attribute is obtained by a single sweep of the
+ * examples reaching the rule, sorted by the attribute, and the best value
+ * is kept if it improves the accuracy. The rounds are repeated until no
+ * threshold improves, so only the improvements are evaluated again.
+ * 
+ * @author Alberto Cano 
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class ICRMCoordinateFittingAlgorithm extends ICRMFittingAlgorithm
+{
+	// ///////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	// ///////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -2984610573196842275L;
+
+	// ///////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	// ///////////////////////////////////////////////////////////////
+	
+	public ICRMCoordinateFittingAlgorithm(ICRMAlgorithm parentAlgorithm, CrispRuleBase classifier, IEvaluator evaluator)
+	{
+		super(parentAlgorithm, classifier, evaluator);
+	}
+
+	// ///////////////////////////////////////////////////////////////
+	// ---------------------------- Overwriting BaseAlgorithm methods
+	// ///////////////////////////////////////////////////////////////
+
+	@Override
+	protected void doInit()
+	{
+		super.doInit();
+		
+		IDataset dataset = ((ICRMFittingEvaluator) evaluator).getDataset();
+		List<IExample> examples = dataset.getExamples();
+		
+		MultiExprTreeRuleIndividual best = (MultiExprTreeRuleIndividual) bset.get(0);
+		RuleBase classifier = best.getPhenotype();
+		int rules = classifier.getClassificationRules().size();
+		
+		// First rule covering each example, the number of rules for the default class
+		int[] firing = new int[examples.size()];
+		
+		for(int j = 0; j < examples.size(); j++)
+			firing[j] = firstCovering(classifier, examples.get(j), 0);
+		
+		boolean improved = true;
+		
+		while(improved)
+		{
+			improved = false;
+			
+			for(int r = 0; r < rules; r++)
+			{
+				// The rules after r do not change while the thresholds of r are refined
+				int[] following = new int[examples.size()];
+				
+				for(int j = 0; j < examples.size(); j++)
+					if(firing[j] > r)
+						following[j] = firing[j];
+					else if(firing[j] == r)
+						following[j] = firstCovering(classifier, examples.get(j), r + 1);
+				
+				for(int i = classifier.getClassificationRule(r).getAntecedent().size()-1; i >= 2; i-=3)
+				{
+					double value = bestThreshold(dataset, classifier, firing, following, r, i);
+					
+					if(Double.isNaN(value))
+						continue;
+					
+					MultiExprTreeRuleIndividual son = createSon(best, r, i, value);
+					
+					List<IIndividual> sons = new ArrayList<IIndividual>();
+					sons.add(son);
+					
+					evaluator.evaluate(sons);
+					
+					if(fitness(son) > fitness(best))
+					{
+						best = son;
+						classifier = son.getPhenotype();
+						
+						Rule rule = classifier.getClassificationRule(r);
+						
+						for(int j = 0; j < examples.size(); j++)
+							if(firing[j] >= r)
+								firing[j] = (Boolean) rule.covers(examples.get(j)) ? r : following[j];
+						
+						improved = true;
+					}
+				}
+			}
+		}
+		
+		bset = new ArrayList<IIndividual>();
+		bset.add(best);
+	}
+
+	@Override
+	protected void doSelection()
+	{
+	}
+
+	@Override
+	protected void doGeneration()
+	{
+		// The thresholds are already refined until no one improves
+	}
+
+	@Override
+	protected void doUpdate()
+	{
+	}
+	
+	// ///////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Private methods
+	// ///////////////////////////////////////////////////////////////
+	
+	/**
+	 * Finds the threshold of a condition of a rule which maximizes the
+	 * accuracy of the decision list. The rule only decides the examples
+	 * reaching it which satisfy its other conditions, and each of them is
+	 * a hit of the rule or of the following rules, so the accuracy of the
+	 * thresholds is obtained by accumulating these examples in sorted order.
+	 * 
+	 * @param dataset the dataset
+	 * @param classifier the classifier
+	 * @param firing the first rule covering each example
+	 * @param following the first rule after the refined one covering each example reaching it
+	 * @param r the index of the rule
+	 * @param i the index of the constant of the condition in the antecedent
+	 * @return the best threshold, NaN if no threshold improves the current one
+	 */
+	
+	private static double bestThreshold(IDataset dataset, RuleBase classifier, int[] firing, int[] following, int r, int i)
+	{
+		Rule rule = classifier.getClassificationRule(r);
+		ExprTree antecedent = rule.getAntecedent();
+		
+		if(!(antecedent.getBlock(i) instanceof ConstantValue) || !(antecedent.getBlock(i-1) instanceof AttributeValue))
+			return Double.NaN;
+		
+		boolean greater;
+		
+		if(antecedent.getBlock(i-2) instanceof GreaterOrEqual)
+			greater = true;
+		else if(antecedent.getBlock(i-2) instanceof LessOrEqual)
+			greater = false;
+		else
+			return Double.NaN;
+		
+		int attribute = ((AttributeValue) antecedent.getBlock(i-1)).getAttributeIndex();
+		double current = ((ConstantValue) antecedent.getBlock(i)).getValue();
+		
+		// The rule without the condition, whose threshold is satisfied by every value
+		Rule others = createRule(antecedent, i, greater ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY, rule.getConsequent());
+		
+		List<IExample> examples = dataset.getExamples();
+		
+		final double[] values = new double[examples.size()];
+		boolean[] candidate = new boolean[examples.size()];
+		int[] gain = new int[examples.size()];
+		
+		for(int j = 0; j < examples.size(); j++)
+		{
+			IExample instance = examples.get(j);
+			values[j] = instance.getValue(attribute);
+			
+			if(firing[j] >= r && !Double.isNaN(values[j]) && (Boolean) others.covers(instance))
+			{
+				double value = ((ClassicInstance) instance).getClassValue();
+				double predicted = following[j] < classifier.getClassificationRules().size() ? 
+						classifier.getClassificationRule(following[j]).getConsequent() : classifier.getDefaultClass();
+				
+				// Gain of covering the example by the rule instead of the following rules
+				candidate[j] = true;
+				gain[j] = (value == rule.getConsequent() ? 1 : 0) - (value == predicted ? 1 : 0);
+			}
+		}
+		
+		int[] order = sortedCandidates(dataset, attribute, values, candidate);
+		
+		int currentGain = 0;
+		
+		for(int j : order)
+			if(greater ? values[j] >= current : values[j] <= current)
+				currentGain += gain[j];
+		
+		// The examples covered by attr >= value are a suffix of the sorted order, those covered by attr <= value a prefix
+		if(greater)
+			for(int k = 0; k < order.length / 2; k++)
+			{
+				int row = order[k];
+				order[k] = order[order.length-1-k];
+				order[order.length-1-k] = row;
+			}
+		
+		int bestGain = currentGain, sum = 0;
+		double bestValue = Double.NaN;
+		
+		// The bound of the interval beyond all the values does not cover any example
+		double bound = bound(antecedent.getBlock(i), greater);
+		
+		if(0 > bestGain && !Double.isNaN(bound) && (order.length == 0 || (greater ? bound > values[order[0]] : bound < values[order[0]])))
+		{
+			bestGain = 0;
+			bestValue = bound;
+		}
+		
+		for(int k = 0; k < order.length; )
+		{
+			double value = values[order[k]];
+			
+			while(k < order.length && values[order[k]] == value)
+				sum += gain[order[k++]];
+			
+			if(sum > bestGain && inInterval(antecedent.getBlock(i), value))
+			{
+				bestGain = sum;
+				bestValue = value;
+			}
+		}
+		
+		return bestValue;
+	}
+	
+	/**
+	 * Sorts the candidate examples by the value of an attribute. The sorted
+	 * index of the coverage engine is filtered for the columnar datasets,
+	 * the candidates of the rest are sorted.
+	 * 
+	 * @param dataset the dataset
+	 * @param attribute the attribute
+	 * @param values the values of the attribute
+	 * @param candidate the candidate examples, which have a value
+	 * @return the candidate examples sorted by value
+	 */
+	
+	private static int[] sortedCandidates(IDataset dataset, int attribute, final double[] values, boolean[] candidate)
+	{
+		int count = 0;
+		
+		for(boolean c : candidate)
+			if(c)
+				count++;
+		
+		int[] order = new int[count];
+		count = 0;
+		
+		if(dataset instanceof IColumnarDataset)
+		{
+			for(int row : ((IColumnarDataset) dataset).getCoverageEngine().getSortedIndex(attribute).getRows())
+				if(candidate[row])
+					order[count++] = row;
+			
+			return order;
+		}
+		
+		Integer[] positions = new Integer[order.length];
+		
+		for(int j = 0; j < candidate.length; j++)
+			if(candidate[j])
+				positions[count++] = j;
+		
+		Arrays.sort(positions, new Comparator<Integer>()
+		{
+			public int compare(Integer i, Integer j)
+			{
+				return Double.compare(values[i], values[j]);
+			}
+		});
+		
+		for(int k = 0; k < positions.length; k++)
+			order[k] = positions[k];
+		
+		return order;
+	}
+	
+	/**
+	 * Index of the first rule covering an example from a given rule
+	 * 
+	 * @param classifier the classifier
+	 * @param instance the example
+	 * @param from the first rule checked
+	 * @return the index of the rule, the number of rules for the default class
+	 */
+	
+	private static int firstCovering(RuleBase classifier, IExample instance, int from)
+	{
+		int r = from;
+		
+		while(r < classifier.getClassificationRules().size() && !(Boolean) classifier.getClassificationRule(r).covers(instance))
+			r++;
+		
+		return r;
+	}
+	
+	/**
+	 * Creates the son of a classifier changing the threshold of a condition
+	 * 
+	 * @param parent the classifier
+	 * @param r the index of the rule
+	 * @param i the index of the constant of the condition in the antecedent
+	 * @param value the threshold
+	 * @return the son
+	 */
+	
+	private static MultiExprTreeRuleIndividual createSon(MultiExprTreeRuleIndividual parent, int r, int i, double value)
+	{
+		Rule rule = parent.getPhenotype().getClassificationRule(r);
+		
+		MultiExprTreeRuleIndividual son = parent.copy();
+		son.getPhenotype().setClassificationRule(r, createRule(rule.getAntecedent(), i, value, rule.getConsequent()));
+		
+		// The son is evaluated from the decisions of its parent
+		if(parent instanceof ICRMFittingIndividual && son instanceof ICRMFittingIndividual)
+			((ICRMFittingIndividual) son).setLineage((ICRMFittingIndividual) parent, r);
+		
+		return son;
+	}
+	
+	/**
+	 * Creates a rule changing a constant of an antecedent
+	 * 
+	 * @param antecedent the antecedent
+	 * @param i the index of the constant
+	 * @param value the value of the constant
+	 * @param consequent the consequent
+	 * @return the rule
+	 */
+	
+	private static Rule createRule(ExprTree antecedent, int i, double value, double consequent)
+	{
+		ExprTree genotype = antecedent.copy();
+		((ConstantValue) genotype.getBlock(i)).setValue(value);
+		
+		CrispRule rule = new CrispRule();
+		rule.setAntecedent(genotype);
+		rule.setConsequent(consequent);
+		
+		return rule;
+	}
+	
+	/**
+	 * Checks if a threshold is in the interval of a constant
+	 * 
+	 * @param constant the constant
+	 * @param value the threshold
+	 * @return true if the constant can take the value
+	 */
+	
+	private static boolean inInterval(IPrimitive constant, double value)
+	{
+		if(constant instanceof RandomConstantOfContinuousValues)
+		{
+			net.sf.jclec.util.range.Interval interval = ((RandomConstantOfContinuousValues) constant).getInterval();
+			
+			return interval == null || (value >= interval.getLeft() && value <= interval.getRight());
+		}
+		else if(constant instanceof RandomConstantOfDiscreteValues)
+		{
+			net.sf.jclec.util.intset.Interval interval = ((RandomConstantOfDiscreteValues) constant).getInterval();
+			
+			return interval == null || (value == (int) value && value >= interval.getLeft() && value <= interval.getRight());
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Bound of the interval of a constant which covers the fewest values
+	 * 
+	 * @param constant the constant
+	 * @param greater true for the condition attr &gt;= value, false for attr &lt;= value
+	 * @return the right bound for attr &gt;= value, the left one for attr &lt;= value, NaN if the constant has no interval
+	 */
+	
+	private static double bound(IPrimitive constant, boolean greater)
+	{
+		if(constant instanceof RandomConstantOfContinuousValues)
+		{
+			net.sf.jclec.util.range.Interval interval = ((RandomConstantOfContinuousValues) constant).getInterval();
+			
+			if(interval != null)
+				return greater ? interval.getRight() : interval.getLeft();
+		}
+		else if(constant instanceof RandomConstantOfDiscreteValues)
+		{
+			net.sf.jclec.util.intset.Interval interval = ((RandomConstantOfDiscreteValues) constant).getInterval();
+			
+			if(interval != null)
+				return greater ? interval.getRight() : interval.getLeft();
+		}
+		
+		return Double.NaN;
+	}
+	
+	/**
+	 * Accuracy of a classifier
+	 * 
+	 * @param ind the classifier
+	 * @return the accuracy
+	 */
+	
+	private static double fitness(IIndividual ind)
+	{
+		return ((SimpleValueFitness) ind.getFitness()).getValue();
+	}
+}
@@ -1,7 +1,9 @@
 package net.sf.jclec.problem.classification.icrm.fitting;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.sf.jclec.IEvaluator;
 import net.sf.jclec.IIndividual;
@@ -10,6 +12,7 @@ import net.sf.jclec.exprtree.ExprTree;
 import net.sf.jclec.problem.classification.classic.classifier.CrispRuleBase;
 import net.sf.jclec.problem.classification.exprtree.MultiExprTreeRuleIndividual;
 import net.sf.jclec.problem.classification.icrm.ICRMAlgorithm;
+import net.sf.jclec.problem.classification.icrm.ICRMRandGenFactory;
 import net.sf.jclec.problem.util.dataset.IMetadata;
 import net.sf.jclec.selector.BettersSelector;
 
@@ -69,11 +72,11 @@ public class ICRMFittingAlgorithm extends PopulationAlgorithm
 		for(int i = 0; i < classifier.getClassificationRules().size(); i++)
 			genotype[i] = classifier.getClassificationRule(i).getAntecedent();
 		
-		MultiExprTreeRuleIndividual seed = new MultiExprTreeRuleIndividual(genotype, classifier);
+		MultiExprTreeRuleIndividual seed = new ICRMFittingIndividual(genotype, classifier);
 		
 		bset.add(seed);
 		
-		randGenFactory = parentAlgorithm.getRandGenFactory();
+		randGenFactory = parentAlgorithm.getStreams().split(ICRMRandGenFactory.FITTING, parentAlgorithm.getExecution());
 		species = parentAlgorithm.getSpecies();
 		evaluator = new ICRMFittingEvaluator();
 		
@@ -135,9 +138,11 @@ public class ICRMFittingAlgorithm extends PopulationAlgorithm
 		mset = mutator.mutate(pset);
 		
 		List<IIndividual> nonDuplicatedSet = new ArrayList<IIndividual>();
+		Set<String> keys = new HashSet<String>();
 		
+		// Duplicated classifiers are detected by their canonical keys
 		for(IIndividual ind : mset)
-			if(!nonDuplicatedSet.contains(ind))
+			if(keys.add(((MultiExprTreeRuleIndividual) ind).getPhenotype().getKey()))
 				nonDuplicatedSet.add(ind);
 		
 		evaluator.evaluate(nonDuplicatedSet);
@@ -1,20 +1,29 @@
 package net.sf.jclec.problem.classification.icrm.fitting;
 
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import net.sf.jclec.IFitness;
 import net.sf.jclec.IIndividual;
-import net.sf.jclec.base.AbstractParallelEvaluator;
+import net.sf.jclec.base.AbstractEvaluator;
 import net.sf.jclec.fitness.SimpleValueFitness;
 import net.sf.jclec.fitness.ValueFitnessComparator;
 import net.sf.jclec.problem.classification.classic.ClassicInstance;
-import net.sf.jclec.problem.classification.classic.classifier.CrispRuleBase;
+import net.sf.jclec.problem.classification.coverage.Bitsets;
+import net.sf.jclec.problem.classification.coverage.CoverageEngine;
+import net.sf.jclec.problem.classification.coverage.FitnessCache;
 import net.sf.jclec.problem.classification.exprtree.MultiExprTreeRuleIndividual;
+import net.sf.jclec.problem.classification.icrm.ICRMExecutor;
 import net.sf.jclec.problem.classification.rule.Rule;
+import net.sf.jclec.problem.classification.rule.RuleBase;
+import net.sf.jclec.problem.util.dataset.IColumnarDataset;
 import net.sf.jclec.problem.util.dataset.IDataset;
 import net.sf.jclec.problem.util.dataset.IExample;
 
-public class ICRMFittingEvaluator extends AbstractParallelEvaluator
+public class ICRMFittingEvaluator extends AbstractEvaluator
 {
 	/////////////////////////////////////////////////////////////////
 	//--------------------------------------- Serialization constant
@@ -32,6 +41,22 @@ public class ICRMFittingEvaluator extends AbstractParallelEvaluator
 
 	protected IDataset dataset;
 
+	/** Evaluations cache of the run, null to not cache the evaluations */
+
+	private transient FitnessCache<Double> cache;
+
+	/** Executor of the run, null to evaluate in the calling thread */
+
+	private transient ICRMExecutor executor;
+
+	/** Minimum number of examples to split the evaluation in chunks */
+
+	protected static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/** Number of examples of each chunk, a multiple of 64 */
+
+	protected static final int CHUNK_SIZE = 1 << 13;
+
 	/** Maximize the fitness function */
 
 	private boolean maximize = true;
@@ -87,6 +112,50 @@ public class ICRMFittingEvaluator extends AbstractParallelEvaluator
 		this.dataset = dataset;
 	}
 	
+	/**
+	 * Get the evaluations cache
+	 * 
+	 * @return the cache, null if the evaluations are not cached
+	 */
+	
+	public FitnessCache<Double> getCache()
+	{
+		return cache;
+	}
+	
+	/**
+	 * Set the evaluations cache, owned by the run of the algorithm
+	 * 
+	 * @param cache the cache, null to not cache the evaluations
+	 */
+	
+	public void setCache(FitnessCache<Double> cache)
+	{
+		this.cache = cache;
+	}
+	
+	/**
+	 * Get the executor of the evaluations
+	 * 
+	 * @return the executor, null if the evaluations run in the calling thread
+	 */
+	
+	public ICRMExecutor getExecutor()
+	{
+		return executor;
+	}
+	
+	/**
+	 * Set the executor of the evaluations, owned by the run of the algorithm
+	 * 
+	 * @param executor the executor, null to evaluate in the calling thread
+	 */
+	
+	public void setExecutor(ICRMExecutor executor)
+	{
+		this.executor = executor;
+	}
+	
 	// ///////////////////////////////////////////////////////////////
 	// ------------------------ Overwriting AbstractEvaluator methods
 	// ///////////////////////////////////////////////////////////////
@@ -96,35 +165,355 @@ public class ICRMFittingEvaluator extends AbstractParallelEvaluator
 	{
 		MultiExprTreeRuleIndividual individual = (MultiExprTreeRuleIndividual) ind;
 		
-		//Calculate the confusion matrix
-		int hits = 0;
-		
-		for(IExample instance : getDataset().getExamples())
+		if(getDataset() instanceof IColumnarDataset)
 		{
-			boolean covered = false;
-			double value = ((ClassicInstance) instance).getClassValue();
+			CoverageEngine engine = ((IColumnarDataset) getDataset()).getCoverageEngine();
+			
+			FitnessCache.Key key = new FitnessCache.Key(individual.getPhenotype().getKey(), engine.getId(), individual.getPhenotype().getDefaultClass());
 			
-			for(int i = 0; i < individual.getPhenotype().getClassificationRules().size(); i++)
+			Double accuracy = cache != null ? cache.get(key) : null;
+			
+			if(accuracy == null)
 			{
-				Rule rule = individual.getPhenotype().getClassificationRule(i);
+				accuracy = evaluateCoverage(individual, engine);
 				
-				if((Boolean) rule.covers(instance))
-				{
-					covered = true;
-					if (value == rule.getConsequent())
-						hits++;
-					break;
-				}
+				if(cache != null)
+					cache.put(key, accuracy);
 			}
 			
-			if(!covered)
-				if(value == ((CrispRuleBase) individual.getPhenotype()).getDefaultClass())
-					hits++;
+			ind.setFitness(new SimpleValueFitness(accuracy));
 		}
+		else
+			ind.setFitness(new SimpleValueFitness(evaluateExamples(individual, getDataset().getExamples())));
+		
+		// The parent is no longer needed once the individual has been evaluated
+		if(ind instanceof ICRMFittingIndividual)
+			((ICRMFittingIndividual) ind).setLineage(null, -1);
+	}
+	
+	/**
+	 * Computes the accuracy of the decision list using the coverage bitsets.
+	 * Each rule only classifies the rows not covered by the previous rules.
+	 * The children of an evaluated classifier start from the rows reaching
+	 * the changed rule, and take the hits of the previous rules from their
+	 * parent.
+	 * 
+	 * @param individual the classifier
+	 * @param engine the coverage engine of the dataset
+	 * @return the accuracy
+	 */
+	
+	private double evaluateCoverage(MultiExprTreeRuleIndividual individual, CoverageEngine engine)
+	{
+		int rules = individual.getPhenotype().getClassificationRules().size();
+		int words = Bitsets.words(engine.size());
+		
+		Decisions parent = getParentDecisions(individual, rules);
+		int first = parent == null ? 0 : ((ICRMFittingIndividual) individual).getChangedRule();
+		
+		// The rows reaching the rules before the changed one are shared with the parent
+		long[][] reach = new long[rules + 1][];
+		
+		for(int i = 0; i <= rules; i++)
+			if(i > first)
+				reach[i] = new long[words];
+			else
+				reach[i] = parent == null ? Bitsets.all(engine.size()) : parent.reach[i];
+		
+		int[] hits;
+		
+		// Large datasets are split in chunks of words counted in parallel
+		if(engine.size() >= PARALLEL_THRESHOLD && hasPool() && isCompiled(individual))
+			hits = invoke(new CoverageHits(individual.getPhenotype(), engine, reach, first, 0, words));
+		else
+			hits = decide(individual.getPhenotype(), engine, reach, first, 0, words);
+		
+		if(parent != null)
+			System.arraycopy(parent.hits, 0, hits, 0, first);
+		
+		setDecisions(individual, new Decisions(getDataset(), reach, null, hits));
+		
+		return sum(hits) / (double) engine.size();
+	}
+	
+	/**
+	 * Computes the accuracy of the decision list on the examples. The
+	 * children of an evaluated classifier only classify again the examples
+	 * reaching the changed rule, the rest keep the rule of their parent.
+	 * 
+	 * @param individual the classifier
+	 * @param examples the examples
+	 * @return the accuracy
+	 */
+	
+	private double evaluateExamples(MultiExprTreeRuleIndividual individual, List<IExample> examples)
+	{
+		int rules = individual.getPhenotype().getClassificationRules().size();
+		
+		Decisions parent = getParentDecisions(individual, rules);
+		int first = parent == null ? 0 : ((ICRMFittingIndividual) individual).getChangedRule();
+		int[] parentFiring = parent == null ? null : parent.firing;
+		
+		int[] firing = new int[examples.size()];
+		int[] hits;
+		
+		// Large datasets are split in chunks counted in parallel
+		if(examples.size() >= PARALLEL_THRESHOLD && hasPool() && isCompiled(individual))
+			hits = invoke(new ExampleHits(individual.getPhenotype(), examples, parentFiring, firing, first, 0, examples.size()));
+		else
+			hits = decide(individual.getPhenotype(), examples, parentFiring, firing, first, 0, examples.size());
+		
+		if(parent != null)
+			System.arraycopy(parent.hits, 0, hits, 0, first);
 		
-		double accuracy = hits / (double) getDataset().getExamples().size();
+		setDecisions(individual, new Decisions(getDataset(), null, firing, hits));
 		
-		ind.setFitness(new SimpleValueFitness(accuracy));
+		return sum(hits) / (double) examples.size();
+	}
+	
+	/**
+	 * Classifies the rows of a range of words which reach a rule and the
+	 * following ones. The rows reaching each next rule are written in the
+	 * bitsets of the rows reaching the rules.
+	 * 
+	 * @param classifier the classifier
+	 * @param engine the coverage engine
+	 * @param reach the rows reaching each rule, and the default class at the end
+	 * @param first the first rule classifying the rows
+	 * @param from first word
+	 * @param to last word (exclusive)
+	 * @return the hits of each rule, and of the default class at the end
+	 */
+	
+	private static int[] decide(RuleBase classifier, CoverageEngine engine, long[][] reach, int first, int from, int to)
+	{
+		int rules = reach.length - 1;
+		int[] hits = new int[rules + 1];
+		
+		for(int r = first; r < rules; r++)
+		{
+			Rule rule = classifier.getClassificationRule(r);
+			
+			// The whole bitsets are cached by the engine, the chunks are computed apart
+			long[] covered;
+			int offset;
+			
+			if(from == 0 && to == reach[r].length)
+			{
+				covered = engine.coverage(rule);
+				offset = 0;
+			}
+			else
+			{
+				covered = engine.coverage(rule, from, to);
+				offset = from;
+			}
+			
+			long[] positives = engine.classMask(rule.getConsequent());
+			long[] before = reach[r];
+			long[] after = reach[r + 1];
+			
+			for(int i = from; i < to; i++)
+			{
+				long decided = covered[i - offset] & before[i];
+				hits[r] += Long.bitCount(decided & positives[i]);
+				after[i] = before[i] & ~decided;
+			}
+		}
+		
+		long[] positives = engine.classMask(classifier.getDefaultClass());
+		
+		for(int i = from; i < to; i++)
+			hits[rules] += Long.bitCount(reach[rules][i] & positives[i]);
+		
+		return hits;
+	}
+	
+	/**
+	 * Classifies the examples of a range which reach a rule and the
+	 * following ones. The examples which reached a later rule of the parent
+	 * only check the first rule, since the following ones did not change.
+	 * 
+	 * @param classifier the classifier
+	 * @param examples the examples
+	 * @param parentFiring the first rule covering each example in the parent, null if there is no parent
+	 * @param firing the first rule covering each example, the number of rules for the default class
+	 * @param first the first rule classifying the examples
+	 * @param from first example
+	 * @param to last example (exclusive)
+	 * @return the hits of each rule, and of the default class at the end
+	 */
+	
+	private static int[] decide(RuleBase classifier, List<IExample> examples, int[] parentFiring, int[] firing, int first, int from, int to)
+	{
+		int rules = classifier.getClassificationRules().size();
+		int[] hits = new int[rules + 1];
+		
+		for(int j = from; j < to; j++)
+		{
+			if(parentFiring != null && parentFiring[j] < first)
+			{
+				firing[j] = parentFiring[j];
+				continue;
+			}
+			
+			IExample instance = examples.get(j);
+			int r = first;
+			
+			if(parentFiring != null && parentFiring[j] > first)
+			{
+				if(!(Boolean) classifier.getClassificationRule(first).covers(instance))
+					r = parentFiring[j];
+			}
+			else
+			{
+				while(r < rules && !(Boolean) classifier.getClassificationRule(r).covers(instance))
+					r++;
+			}
+			
+			firing[j] = r;
+			
+			double predicted = r < rules ? classifier.getClassificationRule(r).getConsequent() : classifier.getDefaultClass();
+			
+			if(((ClassicInstance) instance).getClassValue() == predicted)
+				hits[r]++;
+		}
+		
+		return hits;
+	}
+	
+	/**
+	 * Obtains the decisions of the parent of a classifier which changes one
+	 * of its rules
+	 * 
+	 * @param individual the classifier
+	 * @param rules the number of rules of the classifier
+	 * @return the decisions, null if the classifier has to be fully evaluated
+	 */
+	
+	private Decisions getParentDecisions(MultiExprTreeRuleIndividual individual, int rules)
+	{
+		if(!(individual instanceof ICRMFittingIndividual))
+			return null;
+		
+		ICRMFittingIndividual parent = ((ICRMFittingIndividual) individual).getParent();
+		
+		if(parent == null || parent.getDecisions() == null)
+			return null;
+		
+		Decisions decisions = parent.getDecisions();
+		int changedRule = ((ICRMFittingIndividual) individual).getChangedRule();
+		
+		if(decisions.dataset != getDataset() || decisions.hits.length != rules + 1 || changedRule < 0 || changedRule >= rules)
+			return null;
+		
+		return decisions;
+	}
+	
+	/**
+	 * Keeps the decisions of a classifier for its children
+	 * 
+	 * @param individual the classifier
+	 * @param decisions the decisions
+	 */
+	
+	private static void setDecisions(MultiExprTreeRuleIndividual individual, Decisions decisions)
+	{
+		if(individual instanceof ICRMFittingIndividual)
+			((ICRMFittingIndividual) individual).setDecisions(decisions);
+	}
+	
+	/**
+	 * Sums the hits of the rules
+	 * 
+	 * @param hits the hits of each rule
+	 * @return the total hits
+	 */
+	
+	private static int sum(int[] hits)
+	{
+		int total = 0;
+		
+		for(int h : hits)
+			total += h;
+		
+		return total;
+	}
+	
+	/**
+	 * Checks if all the rules of a classifier are compiled, so they can be
+	 * evaluated by several threads at the same time
+	 * 
+	 * @param individual the classifier
+	 * @return true if all the rules are compiled
+	 */
+	
+	private static boolean isCompiled(MultiExprTreeRuleIndividual individual)
+	{
+		for(Rule rule : individual.getPhenotype().getClassificationRules())
+			if(rule.getCompiledAntecedent() == null)
+				return false;
+		
+		return true;
+	}
+	
+	/**
+	 * Checks if the executor of the run has a pool to count in parallel
+	 * 
+	 * @return true if the chunks can be counted in parallel
+	 */
+	
+	private boolean hasPool()
+	{
+		return executor != null && executor.getPool() != null;
+	}
+	
+	/**
+	 * Runs a counting task in the pool of the executor of the run. A
+	 * worker of the pool runs the task itself and helps with its chunks,
+	 * other threads wait for the result.
+	 * 
+	 * @param task the task
+	 * @return the hits of each rule
+	 */
+	
+	private int[] invoke(RecursiveTask<int[]> task)
+	{
+		ForkJoinPool pool = executor.getPool();
+		
+		if(ForkJoinTask.getPool() == pool)
+			return task.invoke();
+		else
+			return pool.invoke(task);
+	}
+	
+	/**
+	 * Evaluates a batch of individuals in the executor of the run, or in
+	 * the calling thread if there is none. The cost of the batch is the number of examples times the number of rules of the classifiers.
+	 * 
+	 * @param inds Individuals to evaluate
+	 */
+	
+	@Override
+	public void evaluate(List<IIndividual> inds)
+	{
+		long cost = 0;
+		
+		for(IIndividual ind : inds)
+			cost += (long) getDataset().numberOfExamples() * ((MultiExprTreeRuleIndividual) ind).getPhenotype().getClassificationRules().size();
+		
+		synchronized(this)
+		{
+			numberOfEvaluations += inds.size();
+		}
+		
+		(executor != null ? executor : ICRMExecutor.sequential()).evaluate(inds, cost, new ICRMExecutor.Evaluation()
+		{
+			public void evaluate(IIndividual ind)
+			{
+				ICRMFittingEvaluator.this.evaluate(ind);
+			}
+		});
 	}
 	
 	/**
@@ -136,4 +525,178 @@ public class ICRMFittingEvaluator extends AbstractParallelEvaluator
 		// Return comparator
 		return comparator;
 	}	
-}
\ No newline at end of file
+	
+	// ///////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Inner classes
+	// ///////////////////////////////////////////////////////////////
+	
+	/**
+	 * Decisions of a decision list on the training instances. The rule
+	 * classifying each instance is kept as the bitsets of the rows reaching
+	 * each rule when the dataset is columnar, or as the index of the first
+	 * rule covering each example otherwise.
+	 */
+	
+	static final class Decisions
+	{
+		/** Dataset of the decisions */
+		
+		final IDataset dataset;
+		
+		/** Rows reaching each rule, and the default class at the end */
+		
+		final long[][] reach;
+		
+		/** First rule covering each example, the number of rules for the default class */
+		
+		final int[] firing;
+		
+		/** Hits of each rule, and of the default class at the end */
+		
+		final int[] hits;
+		
+		Decisions(IDataset dataset, long[][] reach, int[] firing, int[] hits)
+		{
+			this.dataset = dataset;
+			this.reach = reach;
+			this.firing = firing;
+			this.hits = hits;
+		}
+	}
+	
+	/**
+	 * Counts the hits of a decision list over a range of words of the
+	 * coverage bitsets
+	 */
+	
+	private static class CoverageHits extends RecursiveTask<int[]>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		/** Classifier */
+		
+		private final RuleBase classifier;
+		
+		/** Coverage engine */
+		
+		private final CoverageEngine engine;
+		
+		/** Rows reaching each rule */
+		
+		private final long[][] reach;
+		
+		/** First rule classifying the rows */
+		
+		private final int first;
+		
+		/** First word */
+		
+		private final int from;
+		
+		/** Last word (exclusive) */
+		
+		private final int to;
+		
+		public CoverageHits(RuleBase classifier, CoverageEngine engine, long[][] reach, int first, int from, int to)
+		{
+			this.classifier = classifier;
+			this.engine = engine;
+			this.reach = reach;
+			this.first = first;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected int[] compute()
+		{
+			if((to - from) << 6 > CHUNK_SIZE)
+			{
+				int mid = (from + to) >>> 1;
+				
+				CoverageHits left = new CoverageHits(classifier, engine, reach, first, from, mid);
+				left.fork();
+				
+				int[] hits = new CoverageHits(classifier, engine, reach, first, mid, to).compute();
+				int[] leftHits = left.join();
+				
+				for(int i = 0; i < hits.length; i++)
+					hits[i] += leftHits[i];
+				
+				return hits;
+			}
+			
+			return decide(classifier, engine, reach, first, from, to);
+		}
+	}
+	
+	/**
+	 * Counts the hits of a decision list over a range of examples
+	 */
+	
+	private static class ExampleHits extends RecursiveTask<int[]>
+	{
+		private static final long serialVersionUID = 1L;
+		
+		/** Classifier */
+		
+		private final RuleBase classifier;
+		
+		/** Examples */
+		
+		private final List<IExample> examples;
+		
+		/** First rule covering each example in the parent */
+		
+		private final int[] parentFiring;
+		
+		/** First rule covering each example */
+		
+		private final int[] firing;
+		
+		/** First rule classifying the examples */
+		
+		private final int first;
+		
+		/** First example */
+		
+		private final int from;
+		
+		/** Last example (exclusive) */
+		
+		private final int to;
+		
+		public ExampleHits(RuleBase classifier, List<IExample> examples, int[] parentFiring, int[] firing, int first, int from, int to)
+		{
+			this.classifier = classifier;
+			this.examples = examples;
+			this.parentFiring = parentFiring;
+			this.firing = firing;
+			this.first = first;
+			this.from = from;
+			this.to = to;
+		}
+		
+		@Override
+		protected int[] compute()
+		{
+			if(to - from > CHUNK_SIZE)
+			{
+				int mid = (from + to) >>> 1;
+				
+				ExampleHits left = new ExampleHits(classifier, examples, parentFiring, firing, first, from, mid);
+				left.fork();
+				
+				int[] hits = new ExampleHits(classifier, examples, parentFiring, firing, first, mid, to).compute();
+				int[] leftHits = left.join();
+				
+				for(int i = 0; i < hits.length; i++)
+					hits[i] += leftHits[i];
+				
+				return hits;
+			}
+			
+			return decide(classifier, examples, parentFiring, firing, first, from, to);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package net.sf.jclec.problem.classification.icrm.fitting;
+
+import net.sf.jclec.IFitness;
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.problem.classification.exprtree.MultiExprTreeRuleIndividual;
+import net.sf.jclec.problem.classification.rule.RuleBase;
+
+/**
+ * ICRM: An Interpretable Classification Rule Mining algorithm
+ * 
+ * Classifier of the fitting stage. The individual keeps the decisions of
+ * its decision list on the training instances once it is evaluated, and
+ * the children which change a single rule of the list are evaluated from
+ * the decisions of their parent.
+ * 
+ * @author Alberto Cano 
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class ICRMFittingIndividual extends MultiExprTreeRuleIndividual
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+	
+	private static final long serialVersionUID = 8274153905816046231L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Attributes
+	/////////////////////////////////////////////////////////////////
+
+	/** Parent of the individual, null if it has no parent or it has been evaluated */
+	
+	protected transient ICRMFittingIndividual parent;
+	
+	/** Index of the rule changed from the parent */
+	
+	protected transient int changedRule = -1;
+	
+	/** Decisions of the decision list, null if the individual has not been evaluated */
+	
+	protected transient ICRMFittingEvaluator.Decisions decisions;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 * 
+	 * @param genotype the genotype of the individual
+	 * @param phenotype the phenotype of the individual
+	 */
+	
+	public ICRMFittingIndividual(ExprTree[] genotype, RuleBase phenotype) 
+	{
+		super(genotype, phenotype);
+	}
+	
+	/**
+	 * Constructor
+	 * 
+	 * @param genotype the genotype of the individual
+	 * @param phenotype the phenotype of the individual
+	 * @param fitness the fitness of the individual
+	 */
+
+	public ICRMFittingIndividual(ExprTree[] genotype, RuleBase phenotype, IFitness fitness) 
+	{
+		super(genotype, phenotype, fitness);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the parent of the individual, null if it has no parent
+	 */
+	public ICRMFittingIndividual getParent() {
+		return parent;
+	}
+
+	/**
+	 * @return the index of the rule changed from the parent
+	 */
+	public int getChangedRule() {
+		return changedRule;
+	}
+
+	/**
+	 * Records the parent of the individual, whose decision list is the one
+	 * of the parent except for one rule
+	 * 
+	 * @param parent the parent, null to forget it
+	 * @param changedRule the index of the changed rule
+	 */
+	public void setLineage(ICRMFittingIndividual parent, int changedRule) {
+		this.parent = parent;
+		this.changedRule = changedRule;
+	}
+	
+	/**
+	 * Copy the individual. The decisions and the parent are not copied.
+	 * 
+	 * @return the copy
+	 */
+	
+	@Override
+	public ICRMFittingIndividual copy() 
+	{
+		ExprTree [] genotypeCopy = new ExprTree[genotype.length];
+		
+		for(int i = 0; i < genotype.length; i++)
+			genotypeCopy[i] = genotype[i].copy();
+		
+		if(this.getFitness() != null)
+			return new ICRMFittingIndividual(genotypeCopy, phenotype.copy(), fitness.copy());
+		else
+			return new ICRMFittingIndividual(genotypeCopy, phenotype.copy());
+	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Package methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * @return the decisions of the decision list, null if the individual has not been evaluated
+	 */
+	ICRMFittingEvaluator.Decisions getDecisions() {
+		return decisions;
+	}
+
+	/**
+	 * @param decisions the decisions of the decision list
+	 */
+	void setDecisions(ICRMFittingEvaluator.Decisions decisions) {
+		this.decisions = decisions;
+	}
+}
@@ -116,6 +116,10 @@ public class ICRMFittingMutator extends AbstractMutator
 			
 			s0_classifier.getPhenotype().setClassificationRule(j,s0_newrule);
 			
+			// The son is evaluated from the decisions of its parent
+			if(ind instanceof ICRMFittingIndividual && s0_classifier instanceof ICRMFittingIndividual)
+				((ICRMFittingIndividual) s0_classifier).setLineage((ICRMFittingIndividual) ind, j);
+			
 			sonsBuffer.add(s0_classifier);
 		}
 	}
@@ -0,0 +1,174 @@
+package net.sf.jclec.problem.classification.icrm.ga;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jclec.IIndividual;
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.problem.classification.blocks.ConstantValue;
+import net.sf.jclec.problem.classification.blocks.GreaterOrEqual;
+import net.sf.jclec.problem.classification.blocks.LessOrEqual;
+import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.coverage.SortedAttributeIndex;
+import net.sf.jclec.problem.classification.icrm.ICRMAlgorithm;
+import net.sf.jclec.problem.classification.icrm.ICRMExprTreeSpecies;
+import net.sf.jclec.problem.classification.icrm.ICRMIndividual;
+import net.sf.jclec.problem.classification.icrm.ICRMRandGenFactory;
+import net.sf.jclec.problem.classification.rule.compiler.Operator;
+import net.sf.jclec.problem.util.dataset.IColumnarDataset;
+import net.sf.jclec.problem.util.dataset.IDataset;
+import net.sf.jclec.problem.util.dataset.IExample;
+
+/**
+ * ICRM: An Interpretable Classification Rule Mining algorithm
+ *
+ * Exact search of the conditions of each attribute. The thresholds of the
+ * conditions attr &gt;= value and attr &lt;= value which maximize the
+ * fitness for the class are found by sweeping the sorted values of the
+ * attribute once, instead of evolving the initial thresholds. The
+ * conditions of the categorical attributes are chosen as in the genetic
+ * algorithm.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class ICRMExactAlgorithm extends ICRMGAAlgorithm
+{
+	// ///////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	// ///////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 5093376102718254472L;
+
+	// ///////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	// ///////////////////////////////////////////////////////////////
+
+	public ICRMExactAlgorithm(ICRMAlgorithm parentAlgorithm, int Class, List<IIndividual> initset[], IDataset dataset, ICRMRandGenFactory streams)
+	{
+		super(parentAlgorithm, Class, initset, dataset, streams);
+	}
+
+	// ///////////////////////////////////////////////////////////////
+	// ---------------------------- Overwriting BaseAlgorithm methods
+	// ///////////////////////////////////////////////////////////////
+
+	@Override
+	protected void doInit()
+	{
+		super.doInit();
+
+		IDataset dataset = ((ICRMGAEvaluator) evaluator).getDataset();
+
+		for(int i : attributes)
+		{
+			SortedAttributeIndex index = getSortedIndex(dataset, i);
+
+			List<IIndividual> created = new ArrayList<IIndividual>();
+
+			ExprTree greaterOrEqual = null, lessOrEqual = null;
+
+			for(IIndividual ind : bset[i])
+			{
+				ExprTree genotype = ((ICRMIndividual) ind).getGenotype();
+
+				if(greaterOrEqual == null && genotype.getBlock(0) instanceof GreaterOrEqual)
+					greaterOrEqual = genotype;
+				else if(lessOrEqual == null && genotype.getBlock(0) instanceof LessOrEqual)
+					lessOrEqual = genotype;
+			}
+
+			if(greaterOrEqual != null)
+				create(created, greaterOrEqual, index.bestThreshold(Operator.GREATER_OR_EQUAL, Class));
+
+			if(lessOrEqual != null)
+				create(created, lessOrEqual, index.bestThreshold(Operator.LESS_OR_EQUAL, Class));
+
+			evaluator.evaluate(created);
+
+			// The initial rules are kept in case the data has no values
+			created.addAll(bset[i]);
+
+			bset[i] = bettersSelector.select(created);
+		}
+	}
+
+	@Override
+	protected void doSelection()
+	{
+	}
+
+	@Override
+	protected void doGeneration()
+	{
+		// The thresholds found by the sweep are already the best ones
+	}
+
+	@Override
+	protected void doUpdate()
+	{
+	}
+
+	// ///////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Private methods
+	// ///////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a rule with the threshold found by the sweep
+	 *
+	 * @param created the list of created rules
+	 * @param genotype the initial rule with the operator
+	 * @param threshold the threshold, NaN if the attribute has no values
+	 */
+
+	private void create(List<IIndividual> created, ExprTree genotype, double threshold)
+	{
+		if(Double.isNaN(threshold))
+			return;
+
+		ExprTree son_genotype = genotype.copy();
+		((ConstantValue) son_genotype.getBlock(2)).setValue(threshold);
+
+		IIndividual ind = ((ICRMExprTreeSpecies) species).createIndividual(son_genotype);
+		((ICRMIndividual) ind).getPhenotype().setConsequent(Class);
+
+		created.add(ind);
+	}
+
+	/**
+	 * Obtains the index of the sorted values of an attribute. The indexes
+	 * of the columnar datasets are kept by their coverage engine, the rest
+	 * are built by sorting the values.
+	 *
+	 * @param dataset the dataset
+	 * @param attribute the attribute
+	 * @return the sorted index
+	 */
+
+	private static SortedAttributeIndex getSortedIndex(IDataset dataset, int attribute)
+	{
+		if(dataset instanceof IColumnarDataset)
+			return ((IColumnarDataset) dataset).getCoverageEngine().getSortedIndex(attribute);
+
+		List<IExample> examples = dataset.getExamples();
+
+		double[] column = new double[examples.size()];
+		int[] classColumn = new int[examples.size()];
+
+		for(int k = 0; k < examples.size(); k++)
+		{
+			column[k] = examples.get(k).getValue(attribute);
+
+			double classValue = ((ClassicInstance) examples.get(k)).getClassValue();
+
+			// Missing or invalid class values are stored as -1
+			classColumn[k] = (classValue >= 0 && classValue == (int) classValue) ? (int) classValue : -1;
+		}
+
+		return new SortedAttributeIndex(column, classColumn);
+	}
+}
@@ -1,13 +1,18 @@
 package net.sf.jclec.problem.classification.icrm.ga;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import net.sf.jclec.IIndividual;
 import net.sf.jclec.algorithm.PopulationAlgorithm;
 import net.sf.jclec.problem.classification.icrm.ICRMAlgorithm;
+import net.sf.jclec.problem.classification.icrm.ICRMExecutor;
 import net.sf.jclec.problem.classification.icrm.ICRMExprTreeSpecies;
 import net.sf.jclec.problem.classification.icrm.ICRMIndividual;
+import net.sf.jclec.problem.classification.icrm.ICRMRandGenFactory;
+import net.sf.jclec.problem.classification.rule.Rule;
 import net.sf.jclec.problem.util.dataset.IDataset;
 import net.sf.jclec.problem.util.dataset.IMetadata;
 import net.sf.jclec.problem.util.dataset.attribute.AttributeType;
@@ -35,9 +40,9 @@ public class ICRMGAAlgorithm extends PopulationAlgorithm
 	// --------------------------------------------------- Properties
 	// ///////////////////////////////////////////////////////////////
 
-	/** Mutation operator */
+	/** Mutation operator of each attribute, each one with its own random generator */
 
-	protected ICRMGAMutator mutator;
+	protected ICRMGAMutator[] mutators;
 
 	/** Training Dataset info */
 
@@ -67,14 +72,18 @@ public class ICRMGAAlgorithm extends PopulationAlgorithm
 	
 	/** List of feasible attributes to cover */
 	
-	private List<Integer> attributes;
+	protected List<Integer> attributes;
+	
+	/** Executor of the run, which processes the attributes concurrently if it has a pool */
+	
+	private transient ICRMExecutor executor;
 
 	// ///////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
 	// ///////////////////////////////////////////////////////////////
 
 	@SuppressWarnings("unchecked")
-	public ICRMGAAlgorithm(ICRMAlgorithm parentAlgorithm, int Class, List<IIndividual> initset[], IDataset dataset)
+	public ICRMGAAlgorithm(ICRMAlgorithm parentAlgorithm, int Class, List<IIndividual> initset[], IDataset dataset, ICRMRandGenFactory streams)
 	{
 		super();
 		this.Class = Class;
@@ -96,32 +105,28 @@ public class ICRMGAAlgorithm extends PopulationAlgorithm
 			}
 		}
 		
-		randGenFactory = parentAlgorithm.getRandGenFactory();
+		randGenFactory = streams;
 		species = parentAlgorithm.getSpecies();
 		evaluator = new ICRMGAEvaluator();
 		((ICRMGAEvaluator) evaluator).setDataset(dataset);
+		((ICRMGAEvaluator) evaluator).setCache(parentAlgorithm.getSearchCache());
+		
+		executor = parentAlgorithm.getExecutor() != null ? parentAlgorithm.getExecutor() : ICRMExecutor.sequential();
+		((ICRMGAEvaluator) evaluator).setExecutor(executor);
 		
 		attributes = new ArrayList<Integer>();
 		
 		for(int i = 0; i < numberAttributes; i++)
-		{
 			if(((ICRMExprTreeSpecies) parentAlgorithm.getSpecies()).getMetadata().getAttribute(i).getType() != AttributeType.Categorical && bset[i].size() > 0)
 				attributes.add(i);
-			else
-			{
-				for (IIndividual ind : bset[i])
-					((ICRMIndividual) ind).getPhenotype().setConsequent(Class);
-				
-				evaluator.evaluate(bset[i]);
-				
-				bset[i] = bettersSelector.select(bset[i]);
-			}
-		}
 		
 		setMaxOfGenerations(10);
 
-		// Mutator
-		mutator = new ICRMGAMutator(this);
+		// Mutators, with the random stream of their attribute
+		mutators = new ICRMGAMutator[numberAttributes];
+		
+		for(int i : attributes)
+			mutators[i] = new ICRMGAMutator(this, streams.split(i).createRandGen());
 	}
 
 	// ///////////////////////////////////////////////////////////////
@@ -176,13 +181,31 @@ public class ICRMGAAlgorithm extends PopulationAlgorithm
 	@Override
 	protected void doInit()
 	{
-		for(int i : attributes)
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		
+		for(int i = 0; i < numberAttributes; i++)
 		{
-			for (IIndividual ind : bset[i])
-				((ICRMIndividual) ind).getPhenotype().setConsequent(Class);
+			final int attribute = i;
 			
-			evaluator.evaluate(bset[i]);
+			tasks.add(new Runnable()
+			{
+				public void run()
+				{
+					for (IIndividual ind : bset[attribute])
+						((ICRMIndividual) ind).getPhenotype().setConsequent(Class);
+					
+					evaluator.evaluate(bset[attribute]);
+				}
+			});
 		}
+		
+		// The populations of the attributes are independent
+		executor.invokeAll(tasks);
+		
+		// The rules of the attributes which are not evolved are final
+		for(int i = 0; i < numberAttributes; i++)
+			if(!attributes.contains(i))
+				bset[i] = bettersSelector.select(bset[i]);
 	}
 
 	@Override
@@ -201,24 +224,23 @@ public class ICRMGAAlgorithm extends PopulationAlgorithm
 	@Override
 	protected void doGeneration()
 	{
+		List<Runnable> tasks = new ArrayList<Runnable>();
+		
 		for(int i : attributes)
 		{
-			// Mutate parents
-			mset[i] = mutator.mutate(pset[i]);
-			
-			List<IIndividual> nonDuplicatedSet = new ArrayList<IIndividual>();
+			final int attribute = i;
 			
-			for(IIndividual ind : mset[i])
-				if(!nonDuplicatedSet.contains(ind))
-					nonDuplicatedSet.add(ind);
-			
-			for (IIndividual ind : nonDuplicatedSet)
-				((ICRMIndividual) ind).getPhenotype().setConsequent(Class);
-	
-			evaluator.evaluate(nonDuplicatedSet);
-	
-			cset[i].addAll(nonDuplicatedSet);
+			tasks.add(new Runnable()
+			{
+				public void run()
+				{
+					generate(attribute);
+				}
+			});
 		}
+		
+		// The populations of the attributes are independent
+		executor.invokeAll(tasks);
 	}
 
 	@Override
@@ -237,6 +259,37 @@ public class ICRMGAAlgorithm extends PopulationAlgorithm
 		}
 	}
 
+	// ///////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Private methods
+	// ///////////////////////////////////////////////////////////////
+	
+	/**
+	 * Generates the offspring of the population of an attribute
+	 * 
+	 * @param i the attribute
+	 */
+	
+	private void generate(int i)
+	{
+		// Mutate parents
+		mset[i] = mutators[i].mutate(pset[i]);
+		
+		List<IIndividual> nonDuplicatedSet = new ArrayList<IIndividual>();
+		Set<String> keys = new HashSet<String>();
+		
+		// Duplicated rules are detected by their canonical keys
+		for(IIndividual ind : mset[i])
+			if(keys.add(((Rule) ((ICRMIndividual) ind).getPhenotype()).getKey()))
+				nonDuplicatedSet.add(ind);
+		
+		for (IIndividual ind : nonDuplicatedSet)
+			((ICRMIndividual) ind).getPhenotype().setConsequent(Class);
+
+		evaluator.evaluate(nonDuplicatedSet);
+
+		cset[i].addAll(nonDuplicatedSet);
+	}
+	
 	@Override
 	protected void doControl()
 	{
@@ -1,15 +1,25 @@
 package net.sf.jclec.problem.classification.icrm.ga;
 
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.sf.jclec.IFitness;
 import net.sf.jclec.IIndividual;
-import net.sf.jclec.base.AbstractParallelEvaluator;
+import net.sf.jclec.base.AbstractEvaluator;
 import net.sf.jclec.fitness.SimpleValueFitness;
 import net.sf.jclec.fitness.ValueFitnessComparator;
 import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.coverage.ConfusionMatrix;
+import net.sf.jclec.problem.classification.coverage.CoverageEngine;
+import net.sf.jclec.problem.classification.coverage.FitnessCache;
+import net.sf.jclec.problem.classification.icrm.ICRMExecutor;
 import net.sf.jclec.problem.classification.icrm.ICRMIndividual;
 import net.sf.jclec.problem.classification.rule.Rule;
+import net.sf.jclec.problem.util.dataset.ClassPartitionedDataSet;
+import net.sf.jclec.problem.util.dataset.IColumnarDataset;
 import net.sf.jclec.problem.util.dataset.IDataset;
 import net.sf.jclec.problem.util.dataset.IExample;
 
@@ -21,7 +31,7 @@ import net.sf.jclec.problem.util.dataset.IExample;
  * @author Sebastian Ventura
  */
 
-public class ICRMGAEvaluator extends AbstractParallelEvaluator
+public class ICRMGAEvaluator extends AbstractEvaluator
 {
 	/////////////////////////////////////////////////////////////////
 	// --------------------------------------- Serialization constant
@@ -35,6 +45,14 @@ public class ICRMGAEvaluator extends AbstractParallelEvaluator
 	// --------------------------------------------------- Properties
 	/////////////////////////////////////////////////////////////////
 	
+	/** Evaluations cache of the run, shared by the nested genetic algorithms */
+	
+	private transient FitnessCache<Double> cache;
+	
+	/** Executor of the run, null to evaluate in the calling thread */
+	
+	private transient ICRMExecutor executor;
+	
 	/** Train Dataset */
 	
 	protected IDataset dataset;
@@ -86,6 +104,50 @@ public class ICRMGAEvaluator extends AbstractParallelEvaluator
 		this.dataset = dataset;
 	}
 
+	/**
+	 * Get the evaluations cache
+	 * 
+	 * @return the cache, null if the evaluations are not cached
+	 */
+	
+	public FitnessCache<Double> getCache()
+	{
+		return cache;
+	}
+	
+	/**
+	 * Set the evaluations cache, owned by the run of the algorithm
+	 * 
+	 * @param cache the cache, null to not cache the evaluations
+	 */
+	
+	public void setCache(FitnessCache<Double> cache)
+	{
+		this.cache = cache;
+	}
+	
+	/**
+	 * Get the executor of the evaluations
+	 * 
+	 * @return the executor, null if the evaluations run in the calling thread
+	 */
+	
+	public ICRMExecutor getExecutor()
+	{
+		return executor;
+	}
+	
+	/**
+	 * Set the executor of the evaluations, owned by the run of the algorithm
+	 * 
+	 * @param executor the executor, null to evaluate in the calling thread
+	 */
+	
+	public void setExecutor(ICRMExecutor executor)
+	{
+		this.executor = executor;
+	}
+
 	/////////////////////////////////////////////////////////////////
 	// ------------------------ Overwriting AbstractEvaluator methods
 	/////////////////////////////////////////////////////////////////
@@ -105,25 +167,76 @@ public class ICRMGAEvaluator extends AbstractParallelEvaluator
 		
 		int tp = 0, fp = 0, tn = 0, fn = 0;
 		
-		//Calculate the confusion matrix for each class
-		
-		for(IExample instance : getDataset().getExamples())
+		if(getDataset() instanceof IColumnarDataset)
 		{
-			double value = ((ClassicInstance) instance).getClassValue();
+			CoverageEngine engine = ((IColumnarDataset) getDataset()).getCoverageEngine();
+			
+			FitnessCache.Key key = new FitnessCache.Key(rule.getKey(), engine.getId(), rule.getConsequent());
 			
-			if((Boolean) rule.covers(instance))
+			Double fitness = cache != null ? cache.get(key) : null;
+			
+			if(fitness == null)
 			{
-				if (value == rule.getConsequent())
-					tp++;
-				else
-					fp++;
+				// Threshold conditions are counted on the sorted indexes, the rest on the coverage bitsets
+				ConfusionMatrix confusion = engine.confusion(rule);
+				
+				fitness = confusion.getSensitivity() * confusion.getSpecificity();
+				
+				if(cache != null)
+					cache.put(key, fitness);
 			}
-			else
+			
+			ind.setFitness(new SimpleValueFitness(fitness));
+			return;
+		}
+		
+		//Calculate the confusion matrix for each class
+		
+		if(getDataset() instanceof ClassPartitionedDataSet)
+		{
+			// Only the partitions of the active classes are visited, the class of the examples is the one of their partition
+			ClassPartitionedDataSet dataset = (ClassPartitionedDataSet) getDataset();
+			
+			int covered = 0;
+			
+			for(int c = 0; c < dataset.numberOfClasses(); c++)
+				for(IExample instance : dataset.getPartition(c))
+					if((Boolean) rule.covers(instance))
+					{
+						covered++;
+						
+						if (c == rule.getConsequent())
+							tp++;
+					}
+			
+			for(IExample instance : dataset.getUnclassified())
+				if((Boolean) rule.covers(instance))
+					covered++;
+			
+			fp = covered - tp;
+			fn = dataset.classCount(rule.getConsequent()) - tp;
+			tn = dataset.numberOfExamples() - tp - fp - fn;
+		}
+		else
+		{
+			for(IExample instance : getDataset().getExamples())
 			{
-				if (value != rule.getConsequent())
-					tn++;
+				double value = ((ClassicInstance) instance).getClassValue();
+				
+				if((Boolean) rule.covers(instance))
+				{
+					if (value == rule.getConsequent())
+						tp++;
+					else
+						fp++;
+				}
 				else
-					fn++;
+				{
+					if (value != rule.getConsequent())
+						tn++;
+					else
+						fn++;
+				}
 			}
 		}
 		
@@ -146,6 +259,94 @@ public class ICRMGAEvaluator extends AbstractParallelEvaluator
 		ind.setFitness(new SimpleValueFitness(fitness));
 	}
 	
+	/**
+	 * Evaluates a batch of individuals in the evaluation scheduler shared
+	 * by all the ICRM evaluators. The cost of the batch is the number of
+	 * examples the rules are matched against.
+	 * 
+	 * @param inds Individuals to evaluate
+	 */
+	
+	@Override
+	public void evaluate(List<IIndividual> inds)
+	{
+		synchronized(this)
+		{
+			numberOfEvaluations += inds.size();
+		}
+		
+		executor().evaluate(inds, (long) inds.size() * getDataset().numberOfExamples(), new ICRMExecutor.Evaluation()
+		{
+			public void evaluate(IIndividual ind)
+			{
+				ICRMGAEvaluator.this.evaluate(ind);
+			}
+		});
+	}
+	
+	/**
+	 * Counts the covered rows of each class of some rules, whatever their
+	 * consequent. The counts of the rules evaluated on a view of the whole
+	 * classes of the dataset are obtained by clearing the counts of the
+	 * removed classes, without scanning the data again. Only the columnar
+	 * datasets are counted, since the other ones are not cached.
+	 * 
+	 * @param inds Individuals to count
+	 * @return the counts of each rule by its key, or null if the dataset is not columnar
+	 */
+	
+	public Map<String, int[]> classCounts(List<IIndividual> inds)
+	{
+		if(!(getDataset() instanceof IColumnarDataset))
+			return null;
+		
+		final CoverageEngine engine = ((IColumnarDataset) getDataset()).getCoverageEngine();
+		final Map<String, int[]> counts = new ConcurrentHashMap<String, int[]>();
+		
+		executor().evaluate(inds, (long) inds.size() * engine.size(), new ICRMExecutor.Evaluation()
+		{
+			public void evaluate(IIndividual ind)
+			{
+				Rule rule = (Rule) ((ICRMIndividual) ind).getPhenotype();
+				
+				if(!counts.containsKey(rule.getKey()))
+					counts.put(rule.getKey(), engine.classCounts(rule));
+			}
+		});
+		
+		return counts;
+	}
+	
+	/**
+	 * Evaluates some rules for several consequents at once and keeps the
+	 * fitness of every consequent in the cache. The confusion matrices of
+	 * all the classes are derived from the covered rows of each class.
+	 * 
+	 * @param inds Individuals to evaluate, whatever their consequent
+	 * @param counts the counts of the rules on the dataset
+	 * @param classes the consequents
+	 */
+	
+	public void evaluateClasses(List<IIndividual> inds, Map<String, int[]> counts, Collection<Integer> classes)
+	{
+		if(cache == null || counts == null || !(getDataset() instanceof IColumnarDataset))
+			return;
+		
+		CoverageEngine engine = ((IColumnarDataset) getDataset()).getCoverageEngine();
+		
+		for(IIndividual ind : inds)
+		{
+			String key = ((Rule) ((ICRMIndividual) ind).getPhenotype()).getKey();
+			
+			for(int consequent : classes)
+			{
+				ConfusionMatrix confusion = engine.confusion(counts.get(key), consequent);
+				
+				cache.put(new FitnessCache.Key(key, engine.getId(), consequent), confusion.getSensitivity() * confusion.getSpecificity());
+			}
+		}
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -159,4 +360,19 @@ public class ICRMGAEvaluator extends AbstractParallelEvaluator
 		// Return comparator
 		return comparator;
 	}
+	
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+	
+	/**
+	 * Executor of the evaluations
+	 * 
+	 * @return the executor of the run, or one running in the calling thread
+	 */
+	
+	private ICRMExecutor executor()
+	{
+		return executor != null ? executor : ICRMExecutor.sequential();
+	}
 }
\ No newline at end of file
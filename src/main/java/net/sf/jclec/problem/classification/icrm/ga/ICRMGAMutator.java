@@ -10,6 +10,7 @@ import net.sf.jclec.problem.classification.blocks.RandomConstantOfDiscreteValues
 import net.sf.jclec.problem.classification.icrm.ICRMExprTreeSchema;
 import net.sf.jclec.problem.classification.icrm.ICRMExprTreeSpecies;
 import net.sf.jclec.problem.classification.icrm.ICRMIndividual;
+import net.sf.jclec.util.random.IRandGen;
 
 /**
  * ICRM: An Interpretable Classification Rule Mining algorithm
@@ -48,6 +49,19 @@ public class ICRMGAMutator extends AbstractMutator
 		super();
 		contextualize(context);
 	}
+	
+	/**
+	 * Constructor with a given random generator
+	 * 
+	 * @param context the population
+	 * @param randgen the random generator
+	 */
+	
+	public ICRMGAMutator(IPopulation context, IRandGen randgen) 
+	{
+		this(context);
+		this.randgen = randgen;
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// -------------------------------------------- Protected methods
@@ -2,8 +2,17 @@ package net.sf.jclec.problem.classification.rule;
 
 import net.sf.jclec.IFitness;
 import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.exprtree.IPrimitive;
 import net.sf.jclec.exprtree.fun.ExprTreeFunction;
 import net.sf.jclec.problem.classification.IClassifier;
+import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.ConstantValue;
+import net.sf.jclec.problem.classification.blocks.Equal;
+import net.sf.jclec.problem.classification.blocks.NotEqual;
+import net.sf.jclec.problem.classification.coverage.CoverageEngine;
+import net.sf.jclec.problem.classification.coverage.SelectivityOrder;
+import net.sf.jclec.problem.classification.rule.compiler.CompiledCondition;
+import net.sf.jclec.problem.classification.rule.compiler.RuleCompiler;
 import net.sf.jclec.problem.util.dataset.IMetadata;
 import net.sf.jclec.problem.util.dataset.IExample;
 
@@ -42,6 +51,18 @@ public abstract class Rule extends ExprTreeFunction implements IClassifier
 	/** Actual instance for the rule */
 
 	private IExample actualInstance;
+	
+	/** Compiled antecedent, shared by the copies of the rule */
+	
+	protected transient CompiledCondition compiledAntecedent;
+	
+	/** The antecedent can not be compiled and it is interpreted */
+	
+	protected transient boolean interpreted;
+	
+	/** Canonical key of the antecedent, shared by the copies of the rule */
+	
+	protected transient String key;
 		
 	/////////////////////////////////////////////////////////////////
 	// ------------------------------------------------- Constructors
@@ -92,6 +113,99 @@ public abstract class Rule extends ExprTreeFunction implements IClassifier
 	public void setAntecedent(ExprTree antecedent) 
 	{
 		this.code = antecedent;
+		this.compiledAntecedent = null;
+		this.interpreted = false;
+		this.key = null;
+	}
+	
+	/** 
+	 *  Access to the canonical key of the rule antecedent. Two antecedents
+	 *  have the same key if they have the same blocks, attributes and
+	 *  constant values. A negative zero has the key of a zero, except in
+	 *  the Equal and NotEqual blocks, which tell them apart. The key is
+	 *  built the first time it is required.
+	 *  
+	 *  @return the key of the antecedent
+	 */
+	
+	public String getKey() 
+	{
+		if(key == null)
+		{
+			StringBuilder sb = new StringBuilder();
+			
+			// Last operand of the Equal or NotEqual block seen
+			int exact = -1;
+			
+			for(int i = 0; i < code.size(); i++)
+			{
+				IPrimitive block = code.getBlock(i);
+				
+				if(block instanceof Equal || block instanceof NotEqual)
+					exact = i + 2;
+				
+				if(block instanceof AttributeValue)
+					sb.append('a').append(((AttributeValue) block).getAttributeIndex());
+				else if(block instanceof ConstantValue)
+				{
+					double value = ((ConstantValue) block).getValue();
+					
+					if(value == 0 && i > exact)
+						value = 0.0;
+					
+					sb.append('c').append(Long.toHexString(Double.doubleToLongBits(value)));
+				}
+				else
+					sb.append(block.getClass().getName());
+				
+				sb.append(' ');
+			}
+			
+			key = sb.toString();
+		}
+		
+		return key;
+	}
+	
+	/** 
+	 *  Access to the compiled rule antecedent. The antecedent is compiled
+	 *  the first time it is required. Threads compiling the antecedent at
+	 *  the same time obtain equivalent immutable conditions.
+	 *  
+	 *  @return the compiled antecedent or null if it is interpreted
+	 */
+	
+	public CompiledCondition getCompiledAntecedent() 
+	{
+		CompiledCondition condition = compiledAntecedent;
+		
+		if(condition == null && !interpreted)
+		{
+			condition = RuleCompiler.compile(code);
+			
+			if(condition == null)
+				interpreted = true;
+			else
+				compiledAntecedent = condition;
+		}
+		
+		return condition;
+	}
+	
+	/** 
+	 *  Orders the conditions of the compiled antecedent by their selectivity
+	 *  on a dataset, so the conditions which decide the result are checked
+	 *  first. The antecedent and the printed rule keep the original order.
+	 *  
+	 *  @param engine the coverage engine of the dataset
+	 */
+	
+	public void orderConditions(CoverageEngine engine) 
+	{
+		CompiledCondition condition = getCompiledAntecedent();
+		
+		if(condition != null)
+			compiledAntecedent = SelectivityOrder.order(condition, engine);
 	}
 	
 	/** 
@@ -159,7 +273,10 @@ public abstract class Rule extends ExprTreeFunction implements IClassifier
 	}
 	
 	/** 
-	 *  Checks if the rule covers an instance
+	 *  Checks if the rule covers an instance. Compiled antecedents keep no
+	 *  state between calls, so a rule can be shared by several threads.
+	 *  The interpreter keeps the actual instance and its stack in the rule,
+	 *  so interpreted rules are evaluated by one thread at a time.
 	 *  
 	 *  @param instance the instance
 	 *  
@@ -168,10 +285,18 @@ public abstract class Rule extends ExprTreeFunction implements IClassifier
 
 	public Object covers(IExample instance)
 	{
-		// Set actual instance
-		setActualInstance(instance);
-		// Execute code, using this as context
-		return super.<Object>execute(this);
+		CompiledCondition condition = getCompiledAntecedent();
+		
+		if(condition != null)
+			return condition.covers(instance);
+		
+		synchronized(this)
+		{
+			// Set actual instance
+			setActualInstance(instance);
+			// Execute code, using this as context
+			return super.<Object>execute(this);
+		}
 	}
 
 	/** 
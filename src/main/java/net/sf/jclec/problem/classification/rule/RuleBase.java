@@ -207,6 +207,26 @@ public abstract class RuleBase implements IClassifier
 		
 		return count;
 	}
+	
+	/**
+	 * Obtain the canonical key of the rule base, built from the keys and
+	 * consequents of its rules in order and the default class
+	 * 
+	 * @return the key of the rule base
+	 */
+	
+	public String getKey()
+	{
+		StringBuilder sb = new StringBuilder();
+		
+		if(rules != null)
+			for(Rule rule : rules)
+				sb.append(rule.getKey()).append("-> ").append(rule.getConsequent()).append('|');
+		
+		sb.append(defaultClass);
+		
+		return sb.toString();
+	}
 
 	/////////////////////////////////////////////////////////////////
 	// ------------------------- Overwriting java.lang.Object methods
@@ -0,0 +1,136 @@
+package net.sf.jclec.problem.classification.rule.compiler;
+
+import net.sf.jclec.problem.util.dataset.IExample;
+
+/**
+ * Compiled comparison between an attribute and a constant value
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class AttributeCondition extends CompiledCondition
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -4925463342815766021L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Attribute index */
+
+	private final int attributeIndex;
+
+	/** Relational operator */
+
+	private final Operator operator;
+
+	/** Constant value */
+
+	private final double value;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param attributeIndex the attribute index
+	 * @param operator the relational operator
+	 * @param value the constant value
+	 */
+
+	public AttributeCondition(int attributeIndex, Operator operator, double value)
+	{
+		super();
+		this.attributeIndex = attributeIndex;
+		this.operator = operator;
+		this.value = value;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the attribute index
+	 *
+	 * @return the attribute index
+	 */
+
+	public int getAttributeIndex()
+	{
+		return attributeIndex;
+	}
+
+	/**
+	 * Gets the relational operator
+	 *
+	 * @return the operator
+	 */
+
+	public Operator getOperator()
+	{
+		return operator;
+	}
+
+	/**
+	 * Gets the constant value
+	 *
+	 * @return the value
+	 */
+
+	public double getValue()
+	{
+		return value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public boolean covers(IExample example)
+	{
+		return operator.test(example.getValue(attributeIndex), value);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------- Overwriting java.lang.Object methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if(other instanceof AttributeCondition)
+		{
+			AttributeCondition condition = (AttributeCondition) other;
+
+			return attributeIndex == condition.attributeIndex && operator == condition.operator
+					&& Double.doubleToLongBits(value) == Double.doubleToLongBits(condition.value);
+		}
+		else
+			return false;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		long bits = Double.doubleToLongBits(value);
+
+		return 31 * (31 * attributeIndex + operator.hashCode()) + (int) (bits ^ (bits >>> 32));
+	}
+
+	@Override
+	public String toString()
+	{
+		return attributeIndex + " " + operator + " " + value;
+	}
+}
@@ -0,0 +1,42 @@
+package net.sf.jclec.problem.classification.rule.compiler;
+
+import net.sf.jclec.JCLEC;
+import net.sf.jclec.problem.util.dataset.IExample;
+
+/**
+ * Compiled form of a rule antecedent. Conditions are evaluated directly
+ * over the primitive attribute values of an example, without the stack
+ * of the expression tree interpreter.
+ *
+ * Compiled conditions are immutable, so they can be shared by the copies
+ * of a rule and evaluated concurrently.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public abstract class CompiledCondition implements JCLEC
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 2430948826164581720L;
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Checks if the condition covers an example
+	 *
+	 * @param example the example
+	 *
+	 * @return true or false
+	 */
+
+	public abstract boolean covers(IExample example);
+}
@@ -0,0 +1,75 @@
+package net.sf.jclec.problem.classification.rule.compiler;
+
+import net.sf.jclec.problem.util.dataset.IExample;
+
+/**
+ * Compiled And block. Nested And blocks are flattened into a single
+ * conjunction when the rule is compiled.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class Conjunction extends CompiledCondition
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -1707474370286950553L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Conditions of the conjunction */
+
+	private final CompiledCondition[] conditions;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param conditions the conditions
+	 */
+
+	public Conjunction(CompiledCondition[] conditions)
+	{
+		super();
+		this.conditions = conditions;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the conditions of the conjunction
+	 *
+	 * @return the conditions
+	 */
+
+	public CompiledCondition[] getConditions()
+	{
+		return conditions;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public boolean covers(IExample example)
+	{
+		for(int i = 0; i < conditions.length; i++)
+			if(!conditions[i].covers(example))
+				return false;
+
+		return true;
+	}
+}
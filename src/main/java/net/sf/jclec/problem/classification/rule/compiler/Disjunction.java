@@ -0,0 +1,75 @@
+package net.sf.jclec.problem.classification.rule.compiler;
+
+import net.sf.jclec.problem.util.dataset.IExample;
+
+/**
+ * Compiled Or block. Nested Or blocks are flattened into a single
+ * disjunction when the rule is compiled.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class Disjunction extends CompiledCondition
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 5128946410384786143L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Conditions of the disjunction */
+
+	private final CompiledCondition[] conditions;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param conditions the conditions
+	 */
+
+	public Disjunction(CompiledCondition[] conditions)
+	{
+		super();
+		this.conditions = conditions;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the conditions of the disjunction
+	 *
+	 * @return the conditions
+	 */
+
+	public CompiledCondition[] getConditions()
+	{
+		return conditions;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public boolean covers(IExample example)
+	{
+		for(int i = 0; i < conditions.length; i++)
+			if(conditions[i].covers(example))
+				return true;
+
+		return false;
+	}
+}
@@ -0,0 +1,160 @@
+package net.sf.jclec.problem.classification.rule.compiler;
+
+import net.sf.jclec.problem.util.dataset.IExample;
+
+/**
+ * Compiled In and Out blocks. The bounds are sorted when the condition
+ * is compiled, as the blocks do every time they are evaluated.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class IntervalCondition extends CompiledCondition
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 6311708460390958257L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Attribute index */
+
+	private final int attributeIndex;
+
+	/** Lower bound */
+
+	private final double min;
+
+	/** Upper bound */
+
+	private final double max;
+
+	/** True for the In block, false for the Out block */
+
+	private final boolean inside;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param attributeIndex the attribute index
+	 * @param min the lower bound
+	 * @param max the upper bound
+	 * @param inside in or out of the interval
+	 */
+
+	public IntervalCondition(int attributeIndex, double min, double max, boolean inside)
+	{
+		super();
+		this.attributeIndex = attributeIndex;
+		this.min = min > max ? max : min;
+		this.max = min > max ? min : max;
+		this.inside = inside;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the attribute index
+	 *
+	 * @return the attribute index
+	 */
+
+	public int getAttributeIndex()
+	{
+		return attributeIndex;
+	}
+
+	/**
+	 * Gets the lower bound
+	 *
+	 * @return the lower bound
+	 */
+
+	public double getMin()
+	{
+		return min;
+	}
+
+	/**
+	 * Gets the upper bound
+	 *
+	 * @return the upper bound
+	 */
+
+	public double getMax()
+	{
+		return max;
+	}
+
+	/**
+	 * Checks if the condition is an In or an Out block
+	 *
+	 * @return true for In, false for Out
+	 */
+
+	public boolean isInside()
+	{
+		return inside;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public boolean covers(IExample example)
+	{
+		double value = example.getValue(attributeIndex);
+
+		if(inside)
+			return value > min && value < max;
+		else
+			return value <= min || value >= max;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------- Overwriting java.lang.Object methods
+	/////////////////////////////////////////////////////////////////
+
+	@Override
+	public boolean equals(Object other)
+	{
+		if(other instanceof IntervalCondition)
+		{
+			IntervalCondition condition = (IntervalCondition) other;
+
+			return attributeIndex == condition.attributeIndex && inside == condition.inside
+					&& Double.doubleToLongBits(min) == Double.doubleToLongBits(condition.min)
+					&& Double.doubleToLongBits(max) == Double.doubleToLongBits(condition.max);
+		}
+		else
+			return false;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		long bits = 31 * Double.doubleToLongBits(min) + Double.doubleToLongBits(max);
+
+		return 31 * (31 * attributeIndex + (inside ? 1 : 0)) + (int) (bits ^ (bits >>> 32));
+	}
+
+	@Override
+	public String toString()
+	{
+		return attributeIndex + (inside ? " IN " : " OUT ") + "[" + min + ", " + max + "]";
+	}
+}
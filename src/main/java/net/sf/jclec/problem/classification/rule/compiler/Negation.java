@@ -0,0 +1,70 @@
+package net.sf.jclec.problem.classification.rule.compiler;
+
+import net.sf.jclec.problem.util.dataset.IExample;
+
+/**
+ * Compiled Not block
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class Negation extends CompiledCondition
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -3127043364010405482L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Negated condition */
+
+	private final CompiledCondition condition;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @param condition the negated condition
+	 */
+
+	public Negation(CompiledCondition condition)
+	{
+		super();
+		this.condition = condition;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Gets the negated condition
+	 *
+	 * @return the condition
+	 */
+
+	public CompiledCondition getCondition()
+	{
+		return condition;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+
+	public boolean covers(IExample example)
+	{
+		return !condition.covers(example);
+	}
+}
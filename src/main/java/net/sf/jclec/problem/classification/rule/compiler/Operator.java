@@ -0,0 +1,91 @@
+package net.sf.jclec.problem.classification.rule.compiler;
+
+/**
+ * Relational operators of the attribute conditions
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public enum Operator
+{
+	GREATER_OR_EQUAL(">="),
+	LESS_OR_EQUAL("<="),
+	GREATER(">"),
+	LESS("<"),
+	EQUAL("="),
+	NOT_EQUAL("!=");
+
+	/** Operator symbol */
+
+	private final String symbol;
+
+	private Operator(String symbol)
+	{
+		this.symbol = symbol;
+	}
+
+	/**
+	 * Compares an attribute value against a constant. Equality follows
+	 * the Double.compareTo() semantics of the Equal and NotEqual blocks.
+	 *
+	 * @param value the attribute value
+	 * @param constant the constant value
+	 *
+	 * @return result of the comparison
+	 */
+
+	public final boolean test(double value, double constant)
+	{
+		switch(this)
+		{
+			case GREATER_OR_EQUAL:
+				return value >= constant;
+			case LESS_OR_EQUAL:
+				return value <= constant;
+			case GREATER:
+				return value > constant;
+			case LESS:
+				return value < constant;
+			case EQUAL:
+				return Double.compare(value, constant) == 0;
+			default:
+				return Double.compare(value, constant) != 0;
+		}
+	}
+
+	/**
+	 * Operator obtained when the operands are swapped
+	 *
+	 * @return the mirrored operator
+	 */
+
+	public Operator mirror()
+	{
+		switch(this)
+		{
+			case GREATER_OR_EQUAL:
+				return LESS_OR_EQUAL;
+			case LESS_OR_EQUAL:
+				return GREATER_OR_EQUAL;
+			case GREATER:
+				return LESS;
+			case LESS:
+				return GREATER;
+			default:
+				return this;
+		}
+	}
+
+	/**
+	 * Shows the operator symbol
+	 *
+	 * @return the symbol
+	 */
+
+	public String toString()
+	{
+		return symbol;
+	}
+}
@@ -0,0 +1,238 @@
+package net.sf.jclec.problem.classification.rule.compiler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.exprtree.IPrimitive;
+import net.sf.jclec.problem.classification.blocks.And;
+import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.ConstantValue;
+import net.sf.jclec.problem.classification.blocks.Equal;
+import net.sf.jclec.problem.classification.blocks.Greater;
+import net.sf.jclec.problem.classification.blocks.GreaterOrEqual;
+import net.sf.jclec.problem.classification.blocks.In;
+import net.sf.jclec.problem.classification.blocks.Less;
+import net.sf.jclec.problem.classification.blocks.LessOrEqual;
+import net.sf.jclec.problem.classification.blocks.Not;
+import net.sf.jclec.problem.classification.blocks.NotEqual;
+import net.sf.jclec.problem.classification.blocks.Or;
+import net.sf.jclec.problem.classification.blocks.Out;
+
+/**
+ * Compiles the prefix expression tree of a rule antecedent into a tree
+ * of compiled conditions.
+ *
+ * The arguments of a block follow it in the expression tree, and the
+ * first argument is the first value popped when the block is evaluated.
+ * Antecedents using blocks that can not be compiled are left to the
+ * expression tree interpreter.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class RuleCompiler
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Antecedent to compile */
+
+	private final ExprTree code;
+
+	/** Position of the next block to compile */
+
+	private int position;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	private RuleCompiler(ExprTree code)
+	{
+		this.code = code;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compiles a rule antecedent
+	 *
+	 * @param antecedent the antecedent
+	 *
+	 * @return the compiled condition or null if the antecedent can not be compiled
+	 */
+
+	public static CompiledCondition compile(ExprTree antecedent)
+	{
+		if(antecedent == null || antecedent.size() == 0)
+			return null;
+
+		RuleCompiler compiler = new RuleCompiler(antecedent);
+
+		CompiledCondition condition = compiler.compileCondition();
+
+		if(compiler.position != antecedent.size())
+			return null;
+
+		return condition;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compiles the condition starting at the actual position
+	 *
+	 * @return the condition or null if it can not be compiled
+	 */
+
+	private CompiledCondition compileCondition()
+	{
+		if(position >= code.size())
+			return null;
+
+		IPrimitive block = code.getBlock(position++);
+
+		if(block instanceof And || block instanceof Or)
+		{
+			List<CompiledCondition> conditions = new ArrayList<CompiledCondition>();
+
+			for(int i = 0; i < 2; i++)
+			{
+				CompiledCondition condition = compileCondition();
+
+				if(condition == null)
+					return null;
+
+				// Flatten nested blocks of the same type
+				if(block instanceof And && condition instanceof Conjunction)
+					for(CompiledCondition c : ((Conjunction) condition).getConditions())
+						conditions.add(c);
+				else if(block instanceof Or && condition instanceof Disjunction)
+					for(CompiledCondition c : ((Disjunction) condition).getConditions())
+						conditions.add(c);
+				else
+					conditions.add(condition);
+			}
+
+			CompiledCondition[] array = conditions.toArray(new CompiledCondition[conditions.size()]);
+
+			if(block instanceof And)
+				return new Conjunction(array);
+			else
+				return new Disjunction(array);
+		}
+
+		if(block instanceof Not)
+		{
+			CompiledCondition condition = compileCondition();
+
+			if(condition == null)
+				return null;
+
+			if(condition instanceof Negation)
+				return ((Negation) condition).getCondition();
+
+			return new Negation(condition);
+		}
+
+		if(block instanceof In || block instanceof Out)
+		{
+			IPrimitive arg = nextBlock();
+			IPrimitive min = nextBlock();
+			IPrimitive max = nextBlock();
+
+			if(!(arg instanceof AttributeValue) || !(min instanceof ConstantValue) || !(max instanceof ConstantValue))
+				return null;
+
+			return new IntervalCondition(((AttributeValue) arg).getAttributeIndex(),
+					constant(min, false), constant(max, false), block instanceof In);
+		}
+
+		Operator operator = operatorOf(block);
+
+		if(operator == null)
+			return null;
+
+		IPrimitive arg1 = nextBlock();
+		IPrimitive arg2 = nextBlock();
+
+		boolean exact = operator == Operator.EQUAL || operator == Operator.NOT_EQUAL;
+
+		if(arg1 instanceof AttributeValue && arg2 instanceof ConstantValue)
+			return new AttributeCondition(((AttributeValue) arg1).getAttributeIndex(), operator, constant(arg2, exact));
+
+		if(arg1 instanceof ConstantValue && arg2 instanceof AttributeValue)
+			return new AttributeCondition(((AttributeValue) arg2).getAttributeIndex(), operator.mirror(), constant(arg1, exact));
+
+		return null;
+	}
+
+	/**
+	 * Obtains the next block of the antecedent
+	 *
+	 * @return the block or null at the end of the antecedent
+	 */
+
+	private IPrimitive nextBlock()
+	{
+		if(position >= code.size())
+			return null;
+
+		return code.getBlock(position++);
+	}
+
+	/**
+	 * Obtains the value of a constant block. The comparisons which order
+	 * the values do not tell a negative zero from a zero, so it is taken
+	 * as a zero and the equivalent conditions are equal.
+	 *
+	 * @param block the constant block
+	 * @param exact the constant is compared by Equal or NotEqual
+	 *
+	 * @return the value
+	 */
+
+	private static double constant(IPrimitive block, boolean exact)
+	{
+		double value = ((ConstantValue) block).getValue();
+
+		if(value == 0 && !exact)
+			return 0.0;
+
+		return value;
+	}
+
+	/**
+	 * Obtains the operator of a comparison block
+	 *
+	 * @param block the block
+	 *
+	 * @return the operator or null if the block is not a comparison
+	 */
+
+	private static Operator operatorOf(IPrimitive block)
+	{
+		if(block instanceof GreaterOrEqual)
+			return Operator.GREATER_OR_EQUAL;
+		if(block instanceof LessOrEqual)
+			return Operator.LESS_OR_EQUAL;
+		if(block instanceof Greater)
+			return Operator.GREATER;
+		if(block instanceof Less)
+			return Operator.LESS;
+		if(block instanceof Equal)
+			return Operator.EQUAL;
+		if(block instanceof NotEqual)
+			return Operator.NOT_EQUAL;
+
+		return null;
+	}
+}
@@ -73,6 +73,9 @@ public class CrispRule extends Rule
 		CrispRule newRule = new CrispRule();
 
 		newRule.setAntecedent(code.copy());
+		newRule.compiledAntecedent = compiledAntecedent;
+		newRule.interpreted = interpreted;
+		newRule.key = key;
 		newRule.setConsequent(consequent);
 		if(fitness != null) newRule.setFitness(fitness.copy());
 
@@ -0,0 +1,383 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.coverage.Bitsets;
+
+/**
+ * Dataset whose examples are partitioned by their class value
+ *
+ * The partitions are never modified once they are built, so the copies
+ * of the dataset share them. Each copy keeps a mask of the active
+ * classes, so a whole class is removed in constant time and the number
+ * of examples of each class is the size of its partition. The examples
+ * without class are kept in their own partition, which is always active.
+ *
+ * The list returned by getExamples() holds the examples of the active
+ * classes grouped by class, and it is built only when it is requested.
+ * The subsets selected by a bitset keep the bitset and are partitioned
+ * only when their examples or their partitions are requested.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class ClassPartitionedDataSet extends AbstractDataset
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 6120479318836524091L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Examples of each class, followed by the examples without class */
+
+	protected List<IExample>[] partitions;
+
+	/** Active classes */
+
+	protected boolean[] active;
+
+	/** Number of examples of the active classes */
+
+	protected int numberOfRows;
+
+	/** Examples the subset is selected from, until it is partitioned */
+
+	protected List<IExample> source;
+
+	/** Bitset of the examples of the subset, until it is partitioned */
+
+	protected long[] selection;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public ClassPartitionedDataSet()
+	{
+		super();
+	}
+
+	/**
+	 * Constructor that partitions the examples of another dataset
+	 *
+	 * @param dataset the dataset
+	 */
+
+	public ClassPartitionedDataSet(IDataset dataset)
+	{
+		super();
+		setName(dataset.getName());
+		setMetadata(dataset.getMetadata());
+		setExamples(dataset.getExamples());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Load examples from the data set
+	 *
+	 * The file is read as an arff file and then partitioned by class
+	 */
+
+	public void loadExamples()
+	{
+		ArffDataSet dataset = new ArffDataSet();
+		dataset.setFileName(fileName);
+		dataset.setMetadata(metadata);
+		dataset.loadExamples();
+
+		setName(dataset.getName());
+		setExamples(dataset.getExamples());
+	}
+
+	/**
+	 * Get the number of examples of the active classes
+	 *
+	 * @return the number of examples
+	 */
+
+	public int numberOfExamples()
+	{
+		return numberOfRows;
+	}
+
+	/**
+	 * Get the number of classes of the partitions
+	 *
+	 * @return the number of classes
+	 */
+
+	public int numberOfClasses()
+	{
+		partition();
+
+		return partitions.length - 1;
+	}
+
+	/**
+	 * Checks if a class is active
+	 *
+	 * @param classValue the class value
+	 * @return true if the examples of the class belong to the dataset
+	 */
+
+	public boolean isActive(int classValue)
+	{
+		partition();
+
+		return classValue >= 0 && classValue < active.length && active[classValue];
+	}
+
+	/**
+	 * Get the examples of a class
+	 *
+	 * @param classValue the class value
+	 * @return the examples, empty if the class is not active
+	 */
+
+	public List<IExample> getPartition(int classValue)
+	{
+		if(!isActive(classValue))
+			return new ArrayList<IExample>(0);
+
+		return partitions[classValue];
+	}
+
+	/**
+	 * Get the examples without class
+	 *
+	 * @return the examples
+	 */
+
+	public List<IExample> getUnclassified()
+	{
+		partition();
+
+		return partitions[partitions.length - 1];
+	}
+
+	/**
+	 * Get the number of examples of a class
+	 *
+	 * @param classValue the class value
+	 * @return the number of examples, 0 if the class is not active
+	 */
+
+	public int classCount(double classValue)
+	{
+		int index = (int) classValue;
+
+		if(index != classValue || !isActive(index))
+			return 0;
+
+		return partitions[index].size();
+	}
+
+	/**
+	 * Removes the examples of a class
+	 *
+	 * @param classValue the class value
+	 */
+
+	public synchronized void removeClass(int classValue)
+	{
+		if(isActive(classValue))
+		{
+			active[classValue] = false;
+			numberOfRows -= partitions[classValue].size();
+			examples = null;
+		}
+	}
+
+	/**
+	 * Creates the subset of some examples selected by a bitset. The subset
+	 * is partitioned the first time its examples are requested.
+	 *
+	 * @param examples the examples
+	 * @param selection the bitset of the selected examples, which is not modified
+	 * @return the subset
+	 */
+
+	public ClassPartitionedDataSet select(List<IExample> examples, long[] selection)
+	{
+		ClassPartitionedDataSet dataset = new ClassPartitionedDataSet();
+		dataset.setName(datasetName);
+		dataset.setMetadata(metadata);
+		dataset.source = examples;
+		dataset.selection = selection;
+		dataset.numberOfRows = Bitsets.cardinality(selection);
+
+		return dataset;
+	}
+
+	/**
+	 * Set the dataset examples. The partitions are rebuilt from the examples.
+	 *
+	 * @param examples the examples
+	 */
+
+	@SuppressWarnings("unchecked")
+	public void setExamples(ArrayList<IExample> examples)
+	{
+		int numberClasses = 0;
+
+		for(IExample example : examples)
+		{
+			int classValue = classIndex(example);
+
+			if(classValue >= numberClasses)
+				numberClasses = classValue + 1;
+		}
+
+		List<IExample>[] partitions = new List[numberClasses + 1];
+
+		for(int c = 0; c <= numberClasses; c++)
+			partitions[c] = new ArrayList<IExample>();
+
+		for(IExample example : examples)
+		{
+			int classValue = classIndex(example);
+
+			partitions[classValue >= 0 ? classValue : numberClasses].add(example);
+		}
+
+		boolean[] active = new boolean[numberClasses];
+
+		for(int c = 0; c < numberClasses; c++)
+			active[c] = true;
+
+		synchronized(this)
+		{
+			this.partitions = partitions;
+			this.active = active;
+			this.numberOfRows = examples.size();
+			this.examples = null;
+			this.source = null;
+			this.selection = null;
+		}
+	}
+
+	/**
+	 * Get the examples of the active classes, grouped by class
+	 *
+	 * @return examples
+	 */
+
+	public synchronized ArrayList<IExample> getExamples()
+	{
+		partition();
+
+		if(examples == null)
+		{
+			examples = new ArrayList<IExample>(numberOfRows);
+
+			for(int c = 0; c < active.length; c++)
+				if(active[c])
+					examples.addAll(partitions[c]);
+
+			examples.addAll(getUnclassified());
+		}
+
+		return examples;
+	}
+
+	/**
+	 * Add the new examples to the dataset
+	 *
+	 * @param newexamples examples to add
+	 */
+
+	public void addExamples(ArrayList<IExample> newexamples)
+	{
+		ArrayList<IExample> examples = new ArrayList<IExample>(getExamples());
+		examples.addAll(newexamples);
+		setExamples(examples);
+	}
+
+	/**
+	 * Copy method. The partitions are shared with the copy, which has its
+	 * own mask of active classes.
+	 *
+	 * @return A copy of this dataset
+	 */
+
+	@Override
+	public IDataset copy()
+	{
+		ClassPartitionedDataSet dataset = new ClassPartitionedDataSet();
+		dataset.setName(datasetName);
+		dataset.setMetadata(metadata.copy());
+
+		synchronized(this)
+		{
+			dataset.partitions = partitions;
+			dataset.active = active == null ? null : active.clone();
+			dataset.numberOfRows = numberOfRows;
+			dataset.examples = examples;
+			dataset.source = source;
+			dataset.selection = selection;
+		}
+
+		return dataset;
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Partitions the examples of a subset selected by a bitset
+	 */
+
+	private synchronized void partition()
+	{
+		if(selection != null)
+		{
+			ArrayList<IExample> selected = new ArrayList<IExample>(numberOfRows);
+
+			for(int i = 0; i < selection.length; i++)
+			{
+				long word = selection[i];
+
+				while(word != 0)
+				{
+					selected.add(source.get((i << 6) + Long.numberOfTrailingZeros(word)));
+					word &= word - 1;
+				}
+			}
+
+			setExamples(selected);
+		}
+	}
+
+	/**
+	 * Class of an example
+	 *
+	 * @param example the example
+	 * @return the class, -1 if it is missing or invalid
+	 */
+
+	private static int classIndex(IExample example)
+	{
+		double classValue = ((ClassicInstance) example).getClassValue();
+
+		return (classValue >= 0 && classValue == (int) classValue) ? (int) classValue : -1;
+	}
+}
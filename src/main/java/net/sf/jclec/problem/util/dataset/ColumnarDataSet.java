@@ -0,0 +1,299 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.ArrayList;
+
+import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.coverage.CoverageEngine;
+
+/**
+ * Column oriented dataset implementation
+ *
+ * The attribute values are stored in one primitive array per attribute
+ * and the class values in a separate class column. The columns are never
+ * modified once they are built, so copies of the dataset share them.
+ *
+ * The examples are materialized as instances only when they are
+ * requested by getExamples(). Subsets of the rows are represented by
+ * views that share the columns of the dataset.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class ColumnarDataSet extends AbstractDataset implements IColumnarDataset
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = -2745316457027465393L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Attribute columns */
+
+	protected double[][] columns;
+
+	/** Class column, -1 for missing class values */
+
+	protected int[] classColumn;
+
+	/** Number of rows */
+
+	protected int numberOfRows;
+
+	/** Coverage engine of the dataset */
+
+	protected transient CoverageEngine coverageEngine;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Empty constructor
+	 */
+
+	public ColumnarDataSet()
+	{
+		super();
+		columns = new double[0][];
+		classColumn = new int[0];
+	}
+
+	/**
+	 * Constructor that builds the columns from another dataset
+	 *
+	 * @param dataset the dataset
+	 */
+
+	public ColumnarDataSet(IDataset dataset)
+	{
+		super();
+		setName(dataset.getName());
+		setMetadata(dataset.getMetadata());
+		setExamples(dataset.getExamples());
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Load examples from the data set
+	 *
+	 * The file is read as an arff file and then stored by columns
+	 */
+
+	public void loadExamples()
+	{
+		ArffDataSet dataset = new ArffDataSet();
+		dataset.setFileName(fileName);
+		dataset.setMetadata(metadata);
+		dataset.loadExamples();
+
+		setName(dataset.getName());
+		setExamples(dataset.getExamples());
+	}
+
+	/**
+	 * Get the number of examples
+	 *
+	 * @return the number of examples
+	 */
+
+	public int numberOfExamples()
+	{
+		return numberOfRows;
+	}
+
+	/**
+	 * Get the values of an attribute
+	 *
+	 * @param attributeIndex the attribute index
+	 * @return the attribute column
+	 */
+
+	public double[] getColumn(int attributeIndex)
+	{
+		return columns[attributeIndex];
+	}
+
+	/**
+	 * Get the attribute columns
+	 *
+	 * @return the columns
+	 */
+
+	public double[][] getColumns()
+	{
+		return columns;
+	}
+
+	/**
+	 * Get the class values
+	 *
+	 * @return the class column
+	 */
+
+	public int[] getClassColumn()
+	{
+		return classColumn;
+	}
+
+	/**
+	 * Get the value of an attribute for a row
+	 *
+	 * @param row the row
+	 * @param attributeIndex the attribute index
+	 * @return the value
+	 */
+
+	public double getValue(int row, int attributeIndex)
+	{
+		return columns[attributeIndex][row];
+	}
+
+	/**
+	 * Get the class value of a row
+	 *
+	 * @param row the row
+	 * @return the class value, -1 if it is missing
+	 */
+
+	public int getClassValue(int row)
+	{
+		return classColumn[row];
+	}
+
+	/**
+	 * Get the coverage engine of the dataset
+	 *
+	 * @return the coverage engine
+	 */
+
+	public synchronized CoverageEngine getCoverageEngine()
+	{
+		if(coverageEngine == null)
+			coverageEngine = new CoverageEngine(columns, classColumn);
+
+		return coverageEngine;
+	}
+
+	/**
+	 * Creates a view of the rows selected by a bitset
+	 *
+	 * @param rows the bitset of the selected rows
+	 * @return the view of the selected rows
+	 */
+
+	public DatasetView select(long[] rows)
+	{
+		return new DatasetView(this, getCoverageEngine(), rows);
+	}
+
+	/**
+	 * Set the dataset examples. The columns are rebuilt from the examples.
+	 *
+	 * @param examples the examples
+	 */
+
+	public void setExamples(ArrayList<IExample> examples)
+	{
+		int numberAttributes = metadata.numberOfAttributes();
+
+		double[][] columns = new double[numberAttributes][examples.size()];
+		int[] classColumn = new int[examples.size()];
+
+		for(int i = 0; i < examples.size(); i++)
+		{
+			IExample example = examples.get(i);
+
+			for(int j = 0; j < numberAttributes; j++)
+				columns[j][i] = example.getValue(j);
+
+			double classValue = ((ClassicInstance) example).getClassValue();
+
+			// Missing or invalid class values are stored as -1
+			classColumn[i] = (classValue >= 0 && classValue == (int) classValue) ? (int) classValue : -1;
+		}
+
+		synchronized(this)
+		{
+			this.columns = columns;
+			this.classColumn = classColumn;
+			this.numberOfRows = examples.size();
+			this.examples = examples;
+			this.coverageEngine = null;
+		}
+	}
+
+	/**
+	 * Get the dataset examples
+	 *
+	 * @return examples
+	 */
+
+	public synchronized ArrayList<IExample> getExamples()
+	{
+		if(examples == null)
+		{
+			examples = new ArrayList<IExample>(numberOfRows);
+
+			for(int i = 0; i < numberOfRows; i++)
+			{
+				ClassicInstance instance = new ClassicInstance(columns.length);
+
+				for(int j = 0; j < columns.length; j++)
+					instance.setValue(j, columns[j][i]);
+
+				instance.setClassValue(classColumn[i] >= 0 ? classColumn[i] : Double.NaN);
+				examples.add(instance);
+			}
+		}
+
+		return examples;
+	}
+
+	/**
+	 * Add the new examples to the dataset
+	 *
+	 * @param newexamples examples to add
+	 */
+
+	public void addExamples(ArrayList<IExample> newexamples)
+	{
+		ArrayList<IExample> examples = new ArrayList<IExample>(getExamples());
+		examples.addAll(newexamples);
+		setExamples(examples);
+	}
+
+	/**
+	 * Copy method. The columns are immutable and they are shared with the copy.
+	 *
+	 * @return A copy of this dataset
+	 */
+
+	@Override
+	public IDataset copy()
+	{
+		ColumnarDataSet dataset = new ColumnarDataSet();
+		dataset.setName(datasetName);
+		dataset.setMetadata(metadata.copy());
+
+		synchronized(this)
+		{
+			dataset.columns = columns;
+			dataset.classColumn = classColumn;
+			dataset.numberOfRows = numberOfRows;
+			dataset.coverageEngine = coverageEngine;
+		}
+
+		return dataset;
+	}
+}
@@ -0,0 +1,345 @@
+package net.sf.jclec.problem.util.dataset;
+
+import java.util.ArrayList;
+
+import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.coverage.Bitsets;
+import net.sf.jclec.problem.classification.coverage.CoverageEngine;
+
+/**
+ * View of a subset of the rows of a columnar dataset
+ *
+ * The view only keeps the indexes of its rows and shares the columns of
+ * the dataset, so copying a view or an individual which holds it does
+ * not copy any data. The copies of a view share its coverage engine. The
+ * views selected by a bitset keep the bitset until their rows are
+ * requested, and the examples are materialized only when they are
+ * requested by getExamples().
+ *
+ * Setting or adding examples copies the examples of the view into a
+ * columnar dataset of its own, so the dataset and the other views are
+ * not modified.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class DatasetView extends AbstractDataset implements IColumnarDataset
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------- Serialization constant
+	/////////////////////////////////////////////////////////////////
+
+	/** Generated by Eclipse */
+
+	private static final long serialVersionUID = 4419201675810562347L;
+
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Coverage engine of the rows the view is selected from */
+
+	protected transient CoverageEngine source;
+
+	/** Rows of the view, null for all the rows or while they are a bitset */
+
+	protected int[] rows;
+
+	/** Bitset of the rows of the view, until the rows are requested */
+
+	protected long[] selection;
+
+	/** Number of rows of the view */
+
+	protected int size;
+
+	/** Coverage engine of the view */
+
+	protected transient CoverageEngine coverageEngine;
+
+	/** View this view is a copy of, which builds the coverage engine of its copies */
+
+	protected transient DatasetView original;
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------- Constructor
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor of a view of all the rows of a dataset
+	 *
+	 * @param dataset the columnar dataset
+	 */
+
+	public DatasetView(ColumnarDataSet dataset)
+	{
+		this(dataset, dataset.getCoverageEngine(), (int[]) null);
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param dataset the dataset which provides the name and the metadata
+	 * @param source the coverage engine of the rows the view is selected from
+	 * @param rows the rows of the view in increasing order, null for all the rows
+	 */
+
+	public DatasetView(IDataset dataset, CoverageEngine source, int[] rows)
+	{
+		super();
+		setName(dataset.getName());
+		this.metadata = dataset.getMetadata();
+		this.source = source;
+		this.rows = rows;
+		this.size = rows == null ? source.size() : rows.length;
+
+		if(rows == null)
+			this.coverageEngine = source;
+	}
+
+	/**
+	 * Constructor of a view selected by a bitset
+	 *
+	 * @param dataset the dataset which provides the name and the metadata
+	 * @param source the coverage engine of the rows the view is selected from
+	 * @param selection the bitset of the rows of the view, which is not modified
+	 */
+
+	public DatasetView(IDataset dataset, CoverageEngine source, long[] selection)
+	{
+		super();
+		setName(dataset.getName());
+		this.metadata = dataset.getMetadata();
+		this.source = source;
+		this.selection = selection;
+		this.size = Bitsets.cardinality(selection);
+	}
+
+	/**
+	 * Constructor of a copy of a view, which shares its rows
+	 *
+	 * @param view the view
+	 */
+
+	protected DatasetView(DatasetView view)
+	{
+		super();
+		setName(view.getName());
+		this.metadata = view.getMetadata();
+
+		synchronized(view)
+		{
+			this.source = view.source;
+			this.rows = view.rows;
+			this.selection = view.selection;
+			this.size = view.size;
+			this.coverageEngine = view.coverageEngine;
+			this.original = view.original != null ? view.original : view;
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------------------------- Public methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Get the number of examples
+	 *
+	 * @return the number of examples
+	 */
+
+	public int numberOfExamples()
+	{
+		return size;
+	}
+
+	/**
+	 * Get the coverage engine of the view
+	 *
+	 * @return the coverage engine
+	 */
+
+	public synchronized CoverageEngine getCoverageEngine()
+	{
+		if(coverageEngine == null)
+		{
+			if(original != null)
+				coverageEngine = original.getCoverageEngine();
+			else
+				coverageEngine = new CoverageEngine(source, rows());
+		}
+
+		return coverageEngine;
+	}
+
+	/**
+	 * Creates a view of the rows of this view selected by a bitset
+	 *
+	 * @param rows the bitset of the selected rows
+	 * @return the view of the selected rows
+	 */
+
+	public DatasetView select(long[] rows)
+	{
+		return new DatasetView(this, getCoverageEngine(), rows);
+	}
+
+	/**
+	 * Creates a view of the rows of this view selected by a bitset, selected
+	 * from the same rows as this view
+	 *
+	 * @param rows the bitset of the selected rows of this view
+	 * @return the view of the selected rows
+	 */
+
+	public DatasetView narrow(long[] rows)
+	{
+		int[] selected = Bitsets.toArray(rows);
+		int[] parent = rows();
+
+		if(parent != null)
+			for(int i = 0; i < selected.length; i++)
+				selected[i] = parent[selected[i]];
+
+		return new DatasetView(this, source, selected);
+	}
+
+	/**
+	 * Get the rows of the view in the rows it is selected from. The array
+	 * is shared by the view and must not be modified.
+	 *
+	 * @return the rows in increasing order, null for all the rows
+	 */
+
+	public int[] getRows()
+	{
+		return rows();
+	}
+
+	/**
+	 * Get the coverage engine of the rows the view is selected from
+	 *
+	 * @return the coverage engine
+	 */
+
+	public CoverageEngine getSource()
+	{
+		return source;
+	}
+
+	/**
+	 * Get the dataset examples
+	 *
+	 * @return examples
+	 */
+
+	public synchronized ArrayList<IExample> getExamples()
+	{
+		if(examples == null)
+		{
+			int[] rows = rows();
+
+			examples = new ArrayList<IExample>(size);
+
+			for(int i = 0; i < size; i++)
+			{
+				int row = rows == null ? i : rows[i];
+
+				ClassicInstance instance = new ClassicInstance(source.numberOfAttributes());
+
+				for(int j = 0; j < source.numberOfAttributes(); j++)
+					instance.setValue(j, source.getValue(row, j));
+
+				instance.setClassValue(source.getClassValue(row) >= 0 ? source.getClassValue(row) : Double.NaN);
+				examples.add(instance);
+			}
+		}
+
+		return examples;
+	}
+
+	/**
+	 * Load the examples, which are read from the rows of the view
+	 */
+
+	public void loadExamples()
+	{
+		getExamples();
+	}
+
+	/**
+	 * Set the examples. The examples are stored in a columnar dataset of
+	 * the view, which is no longer a subset of the rows of its source.
+	 *
+	 * @param examples the examples
+	 */
+
+	public void setExamples(ArrayList<IExample> examples)
+	{
+		ColumnarDataSet dataset = new ColumnarDataSet();
+		dataset.setName(getName());
+		dataset.setMetadata(metadata);
+		dataset.setExamples(examples);
+
+		synchronized(this)
+		{
+			this.source = dataset.getCoverageEngine();
+			this.coverageEngine = source;
+			this.original = null;
+			this.rows = null;
+			this.selection = null;
+			this.size = examples.size();
+			this.examples = examples;
+		}
+	}
+
+	/**
+	 * Add the new examples to the view. The examples of the view are
+	 * copied into a columnar dataset of the view.
+	 *
+	 * @param newexamples examples to add
+	 */
+
+	public void addExamples(ArrayList<IExample> newexamples)
+	{
+		ArrayList<IExample> examples = new ArrayList<IExample>(getExamples());
+		examples.addAll(newexamples);
+		setExamples(examples);
+	}
+
+	/**
+	 * Copy method. The copy shares the rows and the coverage engine of
+	 * this view.
+	 *
+	 * @return A copy of this view
+	 */
+
+	@Override
+	public IDataset copy()
+	{
+		return new DatasetView(this);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Rows of the view, converted from the bitset the first time they are requested
+	 *
+	 * @return the rows, null for all the rows
+	 */
+
+	private synchronized int[] rows()
+	{
+		if(selection != null)
+		{
+			rows = Bitsets.toArray(selection);
+			selection = null;
+		}
+
+		return rows;
+	}
+}
@@ -0,0 +1,33 @@
+package net.sf.jclec.problem.util.dataset;
+
+import net.sf.jclec.problem.classification.coverage.CoverageEngine;
+
+/**
+ * Dataset stored by columns, whose rule coverage is evaluated by a
+ * coverage engine
+ * 
+ * @author Alberto Cano 
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public interface IColumnarDataset extends IDataset
+{
+	/**
+	 * Access to the coverage engine of the dataset
+	 * 
+	 * @return the coverage engine
+	 */
+	
+	public CoverageEngine getCoverageEngine();
+	
+	/**
+	 * Creates a view of the rows selected by a bitset. The view keeps the
+	 * bitset, which must not be modified afterwards.
+	 * 
+	 * @param rows the bitset of the selected rows
+	 * @return the view of the selected rows
+	 */
+	
+	public DatasetView select(long[] rows);
+}
@@ -5,7 +5,9 @@ import java.util.Vector;
 
 import net.sf.jclec.problem.classification.classic.ClassicInstance;
 import net.sf.jclec.problem.classification.classic.classifier.CrispRuleBase;
+import net.sf.jclec.problem.classification.coverage.ColumnEvaluator;
 import net.sf.jclec.problem.classification.icrm.ICRMAlgorithm;
+import net.sf.jclec.problem.util.dataset.ColumnarDataSet;
 import weka.core.Capabilities;
 import weka.core.Instance;
 import weka.core.Instances;
@@ -19,6 +21,9 @@ public class ICRM extends ClassificationAlgorithm
 {
 	static final long serialVersionUID = 1310258880025902106L;
 	
+	/** Row buffers of the threads classifying single instances */
+	private transient ThreadLocal<RowBuffer> rowBuffers;
+	
 	public ICRM() {
 		super();
 	}
@@ -105,7 +110,7 @@ public class ICRM extends ClassificationAlgorithm
 
 		super.configureMetadata(instances);
 
-		((ICRMAlgorithm) algorithm).setTrainSet(dataset);		
+		((ICRMAlgorithm) algorithm).setTrainSet(new ColumnarDataSet(dataset));		
 		((ICRMAlgorithm) algorithm).prepare();
 	}
 
@@ -124,13 +129,92 @@ public class ICRM extends ClassificationAlgorithm
 		algorithm.execute();
 	}
 
+	/**
+	 * Predicts the class of an instance. The instance is copied to a row
+	 * buffer of the thread and classified as a batch of one row, so no
+	 * instance is created for each call.
+	 * 
+	 * @param ins the instance to classify
+	 * @return the predicted class
+	 */
 	public double classifyInstance(Instance ins)
 	{
-		ClassicInstance instance = new ClassicInstance(ins.numAttributes());
+		RowBuffer buffer = getRowBuffer(metadata.numberOfAttributes());
 		
-		instance.setValues(ins.toDoubleArray());
+		for(int j = 0; j < buffer.columns.length; j++)
+			buffer.columns[j][0] = ins.value(j);
 
-		return ((CrispRuleBase) ((ICRMAlgorithm) algorithm).getClassifier()).classify(instance);
+		return ((CrispRuleBase) ((ICRMAlgorithm) algorithm).getClassifier()).classify(buffer.columns, 0, buffer.instance);
+	}
+	
+	/**
+	 * Gets the row buffer of the calling thread
+	 * 
+	 * @param numberAttributes the number of attributes
+	 * @return the row buffer
+	 */
+	private RowBuffer getRowBuffer(int numberAttributes)
+	{
+		ThreadLocal<RowBuffer> buffers = rowBuffers;
+		
+		if(buffers == null)
+			rowBuffers = buffers = new ThreadLocal<RowBuffer>();
+		
+		RowBuffer buffer = buffers.get();
+		
+		if(buffer == null || buffer.columns.length != numberAttributes)
+		{
+			buffer = new RowBuffer(numberAttributes);
+			buffers.set(buffer);
+		}
+		
+		return buffer;
+	}
+	
+	/**
+	 * Batch prediction is computed by columns, without creating an
+	 * instance for each example
+	 * 
+	 * @return true
+	 */
+	@Override
+	public boolean implementsMoreEfficientBatchPrediction() {
+		return true;
+	}
+	
+	/**
+	 * Predicts the class distributions of a batch of instances. The batch
+	 * is transposed to columns once and each rule is evaluated over the
+	 * instances not covered by the previous rules.
+	 * 
+	 * @param instances the instances to classify
+	 * @return the class distribution of each instance
+	 * @throws Exception if the instances can't be classified
+	 */
+	@Override
+	public double[][] distributionsForInstances(Instances instances) throws Exception
+	{
+		int size = instances.numInstances();
+		int numberAttributes = metadata.numberOfAttributes();
+		
+		double[][] columns = new double[numberAttributes][size];
+		
+		for(int i = 0; i < size; i++)
+		{
+			Instance ins = instances.instance(i);
+			
+			for(int j = 0; j < numberAttributes; j++)
+				columns[j][i] = ins.value(j);
+		}
+		
+		double[] predicted = ((CrispRuleBase) ((ICRMAlgorithm) algorithm).getClassifier()).classify(columns, size);
+		
+		double[][] distributions = new double[size][instances.numClasses()];
+		
+		for(int i = 0; i < size; i++)
+			distributions[i][(int) predicted[i]] = 1.0;
+		
+		return distributions;
 	}
 
 	/**
@@ -181,4 +265,23 @@ public class ICRM extends ClassificationAlgorithm
 	public static void main(String [] argv){
 		runClassifier(new ICRM(), argv);
 	}
+	
+	/**
+	 * Single row of attribute columns and the buffer where it is
+	 * interpreted
+	 */
+	private static final class RowBuffer
+	{
+		/** Attribute columns of one row */
+		private final double[][] columns;
+		
+		/** Buffer of the interpreted rules */
+		private final ClassicInstance instance;
+		
+		public RowBuffer(int numberAttributes)
+		{
+			columns = new double[numberAttributes][1];
+			instance = ColumnEvaluator.createBuffer(columns);
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package net.sf.jclec.problem.classification.coverage;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import net.sf.jclec.problem.classification.rule.compiler.Operator;
+
+/**
+ * SIMD backend of the coverage kernels.
+ *
+ * Each block of 64 values is compared by vectors of the preferred species
+ * of the processor, 8 lanes with AVX-512, and the mask of each vector is
+ * packed into its lanes of the word. The comparisons of the vector API
+ * are false for NaN, as the comparisons of the scalar kernels.
+ *
+ * It needs the jdk.incubator.vector module, so it is only compiled for
+ * JDK 16+ and it is loaded by CoverageKernels at runtime.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+final class VectorKernels implements CoverageKernels.Backend
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Preferred species of the processor */
+
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+	/** Number of lanes of the species */
+
+	private static final int LANES = SPECIES.length();
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------- Constructors
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Constructor
+	 *
+	 * @throws UnsupportedOperationException if the processor has less than four double lanes
+	 */
+
+	VectorKernels()
+	{
+		// Narrower vectors are not faster than the scalar kernels
+		if(LANES < 4 || 64 % LANES != 0)
+			throw new UnsupportedOperationException("Unsupported species: " + SPECIES);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ----------------------------- Implementing the Backend interface
+	/////////////////////////////////////////////////////////////////
+
+	public long compare(double[] values, int offset, Operator operator, double value)
+	{
+		long word = 0;
+
+		// The comparison must be a constant of each loop to be intrinsified
+		switch(operator)
+		{
+			case GREATER_OR_EQUAL:
+				for(int b = 0; b < 64; b += LANES)
+					word |= DoubleVector.fromArray(SPECIES, values, offset + b).compare(VectorOperators.GE, value).toLong() << b;
+				break;
+			case LESS_OR_EQUAL:
+				for(int b = 0; b < 64; b += LANES)
+					word |= DoubleVector.fromArray(SPECIES, values, offset + b).compare(VectorOperators.LE, value).toLong() << b;
+				break;
+			case GREATER:
+				for(int b = 0; b < 64; b += LANES)
+					word |= DoubleVector.fromArray(SPECIES, values, offset + b).compare(VectorOperators.GT, value).toLong() << b;
+				break;
+			case LESS:
+				for(int b = 0; b < 64; b += LANES)
+					word |= DoubleVector.fromArray(SPECIES, values, offset + b).compare(VectorOperators.LT, value).toLong() << b;
+				break;
+			default:
+				throw new IllegalArgumentException("Not a threshold operator: " + operator);
+		}
+
+		return word;
+	}
+
+	public long interval(double[] values, int offset, double min, double max, boolean inside)
+	{
+		long word = 0;
+
+		for(int b = 0; b < 64; b += LANES)
+		{
+			DoubleVector vector = DoubleVector.fromArray(SPECIES, values, offset + b);
+			VectorMask<Double> mask;
+
+			if(inside)
+				mask = vector.compare(VectorOperators.GT, min).and(vector.compare(VectorOperators.LT, max));
+			else
+				mask = vector.compare(VectorOperators.LE, min).or(vector.compare(VectorOperators.GE, max));
+
+			word |= mask.toLong() << b;
+		}
+
+		return word;
+	}
+}
@@ -0,0 +1,284 @@
+package net.sf.jclec.problem.classification.classic.classifier;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.sf.jclec.exprtree.ExprTree;
+import net.sf.jclec.exprtree.IPrimitive;
+import net.sf.jclec.problem.classification.blocks.And;
+import net.sf.jclec.problem.classification.blocks.AttributeValue;
+import net.sf.jclec.problem.classification.blocks.GreaterOrEqual;
+import net.sf.jclec.problem.classification.blocks.Less;
+import net.sf.jclec.problem.classification.blocks.RandomConstantOfContinuousValues;
+import net.sf.jclec.problem.classification.classic.ClassicInstance;
+import net.sf.jclec.problem.classification.rule.crisp.CrispRule;
+import net.sf.jclec.problem.util.dataset.IExample;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests of the predictions of a rule base shared by several threads.
+ *
+ * Each round builds a new rule base, so its antecedents have not been
+ * compiled yet, and several threads classify the examples with it from
+ * the same moment, one example at a time and by batches of columns. The
+ * expected predictions are computed with a different rule base, built
+ * in the same way. The rules which can not be compiled are interpreted,
+ * and the interpreter keeps its state in the rule, so they are also
+ * tested when shared.
+ *
+ * @author Alberto Cano
+ * @author Amelia Zafra
+ * @author Sebastian Ventura
+ */
+
+public class CrispRuleBaseTest
+{
+	/////////////////////////////////////////////////////////////////
+	// --------------------------------------------------- Properties
+	/////////////////////////////////////////////////////////////////
+
+	/** Number of threads sharing the rule base */
+
+	private static final int THREADS = 8;
+
+	/** Number of rule bases shared by the threads */
+
+	private static final int ROUNDS = 50;
+
+	/** Number of times each thread classifies the examples */
+
+	private static final int REPETITIONS = 5;
+
+	/** Number of attributes of the dataset, without the class */
+
+	private static final int ATTRIBUTES = 3;
+
+	/** Number of examples */
+
+	private static final int SIZE = 300;
+
+	/** Examples to classify */
+
+	private static List<IExample> examples;
+
+	/** Examples to classify stored by columns */
+
+	private static double[][] columns;
+
+	/////////////////////////////////////////////////////////////////
+	// ------------------------------------------------------ Fixture
+	/////////////////////////////////////////////////////////////////
+
+	@BeforeClass
+	public static void createExamples()
+	{
+		Random random = new Random(1);
+
+		examples = new ArrayList<IExample>();
+		columns = new double[ATTRIBUTES][SIZE];
+
+		for(int i = 0; i < SIZE; i++)
+		{
+			ClassicInstance instance = new ClassicInstance(ATTRIBUTES + 1);
+
+			for(int j = 0; j < ATTRIBUTES; j++)
+			{
+				columns[j][i] = random.nextInt(100) / 10.0;
+				instance.setValue(j, columns[j][i]);
+			}
+
+			instance.setClassValue(Double.NaN);
+			examples.add(instance);
+		}
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// -------------------------------------------------------- Tests
+	/////////////////////////////////////////////////////////////////
+
+	@Test
+	public void sharedRuleBaseMatchesSingleThread() throws Exception
+	{
+		assertConcurrentPredictions(false);
+	}
+
+	@Test
+	public void sharedInterpretedRuleMatchesSingleThread() throws Exception
+	{
+		assertNull(ruleBase(true).getClassificationRule(0).getCompiledAntecedent());
+
+		assertConcurrentPredictions(true);
+	}
+
+	/////////////////////////////////////////////////////////////////
+	// ---------------------------------------------- Private methods
+	/////////////////////////////////////////////////////////////////
+
+	/**
+	 * Classifies the examples with new rule bases shared by several
+	 * threads and compares the predictions with the single-threaded ones
+	 *
+	 * @param interpreted the rule bases have a rule which is interpreted
+	 * @throws Exception if a thread fails
+	 */
+
+	private static void assertConcurrentPredictions(boolean interpreted) throws Exception
+	{
+		final double[] expected = new double[SIZE];
+
+		CrispRuleBase single = ruleBase(interpreted);
+
+		for(int i = 0; i < SIZE; i++)
+			expected[i] = single.classify(examples.get(i));
+
+		assertArrayEquals(expected, ruleBase(interpreted).classify(columns, SIZE), 0.0);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+		try
+		{
+			int mismatches = 0;
+
+			for(int round = 0; round < ROUNDS; round++)
+			{
+				final CrispRuleBase shared = ruleBase(interpreted);
+				final CountDownLatch start = new CountDownLatch(1);
+
+				List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+				for(int t = 0; t < THREADS; t++)
+				{
+					final boolean batch = t % 2 == 1;
+
+					results.add(executor.submit(new Callable<Integer>()
+					{
+						public Integer call() throws Exception
+						{
+							start.await();
+
+							int mismatches = 0;
+
+							for(int r = 0; r < REPETITIONS; r++)
+							{
+								if(batch)
+								{
+									if(!Arrays.equals(expected, shared.classify(columns, SIZE)))
+										mismatches++;
+								}
+								else
+								{
+									for(int i = 0; i < SIZE; i++)
+										if(shared.classify(examples.get(i)) != expected[i])
+											mismatches++;
+								}
+							}
+
+							return mismatches;
+						}
+					}));
+				}
+
+				start.countDown();
+
+				for(Future<Integer> result : results)
+					mismatches += result.get();
+			}
+
+			assertEquals(0, mismatches);
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * New rule base, whose antecedents have not been compiled:
+	 *
+	 * IF a0 >= a1 THEN 1 (only if interpreted)
+	 * IF a0 < 3 THEN 0
+	 * IF a0 >= 3 AND a1 < 5 THEN 1
+	 * ELSE 2
+	 *
+	 * @param interpreted add the first rule, which can not be compiled
+	 * @return the rule base
+	 */
+
+	private static CrispRuleBase ruleBase(boolean interpreted)
+	{
+		CrispRuleBase ruleBase = new CrispRuleBase(2);
+
+		// A comparison between two attributes can not be compiled
+		if(interpreted)
+			ruleBase.addClassificationRule(rule(1, new GreaterOrEqual(), attribute(0), attribute(1)));
+
+		ruleBase.addClassificationRule(rule(0, new Less(), attribute(0), constant(3)));
+		ruleBase.addClassificationRule(rule(1, new And(), new GreaterOrEqual(), attribute(0), constant(3), new Less(), attribute(1), constant(5)));
+
+		return ruleBase;
+	}
+
+	/**
+	 * Rule of an antecedent in prefix order
+	 *
+	 * @param consequent the consequent
+	 * @param blocks the blocks of the antecedent
+	 * @return the rule
+	 */
+
+	private static CrispRule rule(double consequent, IPrimitive... blocks)
+	{
+		ExprTree antecedent = new ExprTree();
+
+		for(IPrimitive block : blocks)
+			antecedent.addBlock(block);
+
+		CrispRule rule = new CrispRule(antecedent);
+		rule.setConsequent(consequent);
+
+		return rule;
+	}
+
+	/**
+	 * Attribute block of an antecedent
+	 *
+	 * @param index the attribute index
+	 * @return the block
+	 */
+
+	private static AttributeValue attribute(int index)
+	{
+		AttributeValue attribute = new AttributeValue();
+		attribute.setAttributeIndex(index);
+
+		return attribute;
+	}
+
+	/**
+	 * Constant block of an antecedent
+	 *
+	 * @param value the constant value
+	 * @return the block
+	 */
+
+	private static RandomConstantOfContinuousValues constant(double value)
+	{
+		RandomConstantOfContinuousValues constant = new RandomConstantOfContinuousValues();
+		constant.setValue(value);
+
+		return constant;
+	}
+}